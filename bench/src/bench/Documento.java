@@ -0,0 +1,56 @@
+package bench;
+
+import app.EvaluacionParalela;
+import app.Generador;
+import app.parser.Parser;
+import app.report.OperacionResultado;
+import ast.Evaluador;
+import ast.Node;
+import java.util.List;
+import lexer.BufferTokens;
+import lexer.Lexer;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Un documento de app.Generador (árboles completos, semilla fija) y lo que
+ * cada fase recibe de la anterior (tokens, ASTs, filas), preparado una vez por
+ * combinación de parámetros para que cada benchmark mida solo su fase.
+ */
+@State(Scope.Benchmark)
+public class Documento {
+
+    /** Elementos de nivel superior. */
+    @Param({"100", "1000"})
+    public int operaciones;
+
+    /** Niveles de Operacion anidados (0 = solo Numero). */
+    @Param({"1", "4"})
+    public int profundidad;
+
+    /** Hijos como máximo de SUMA/RESTA/MULTIPLICACION/DIVISION. */
+    @Param({"2", "4"})
+    public int aridad;
+
+    /** Fracción de nodos con error: la mitad léxicos, la mitad sintácticos. */
+    @Param({"0", "0.05"})
+    public double densidadErrores;
+
+    String texto;
+    BufferTokens tokens;
+    List<Node> arboles;
+    List<OperacionResultado> filas;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        texto = new Generador(42).conOperaciones(operaciones).conProfundidad(profundidad).conAridad(aridad)
+                .conHojas(0).conErrores(densidadErrores / 2, densidadErrores / 2).generar();
+        // Lo que recibe el parser en SesionAnalisis: el buffer ya lleno
+        tokens = BufferTokens.leer(new Lexer(texto));
+        arboles = Parser.deBuffer(tokens).parseBatchTolerante();
+        filas = EvaluacionParalela.evaluar(arboles, 1, 1, Evaluador.ARBOL);
+    }
+}
@@ -0,0 +1,114 @@
+package bench;
+
+import app.parser.ParseException;
+import app.parser.Parser;
+import app.report.HtmlReport;
+import app.report.InfixPretty;
+import ast.Node;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import lexer.Lexer;
+import lexer.TokenType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Una medición por fase del análisis, sobre el documento completo: cada
+ * operación del benchmark es lexear / parsear / evaluar / renderizar /
+ * escribir el reporte de TODO el Documento (ns/op = ns por documento).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class Fases {
+
+    /** Carpeta temporal para el HTML (se borra al terminar). */
+    @State(Scope.Thread)
+    public static class Carpeta {
+        Path dir, html;
+
+        @Setup(Level.Trial)
+        public void crear() throws IOException {
+            dir = Files.createTempDirectory("lfa-bench");
+            html = dir.resolve("Resultados.html");
+        }
+
+        @TearDown(Level.Trial)
+        public void borrar() throws IOException {
+            Files.deleteIfExists(html);
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    /** Lexer.next(): un Token (objeto) por lexema. */
+    @Benchmark
+    public void lexerNext(Documento d, Blackhole bh) {
+        Lexer lx = new Lexer(d.texto);
+        for (var t = lx.next(); t.type != TokenType.EOF; t = lx.next()) {
+            bh.consume(t);
+        }
+    }
+
+    /** Lexer.escanear(): el camino de SesionAnalisis, sin crear Token. */
+    @Benchmark
+    public void lexerEscanear(Documento d, Blackhole bh) {
+        Lexer lx = new Lexer(d.texto);
+        for (TokenType t; (t = lx.escanear()) != TokenType.EOF; ) {
+            bh.consume(lx.lineaToken());
+        }
+    }
+
+    /** Modo estricto: con errores se detiene en el primero (mide hasta ahí). */
+    @Benchmark
+    public Object parsePrograma(Documento d) {
+        try {
+            return Parser.deBuffer(d.tokens).parsePrograma();
+        } catch (ParseException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object parseBatchTolerante(Documento d) {
+        return Parser.deBuffer(d.tokens).parseBatchTolerante();
+    }
+
+    @Benchmark
+    public void evaluate(Documento d, Blackhole bh) {
+        for (Node n : d.arboles) {
+            try {
+                bh.consume(n.evaluate());
+            } catch (RuntimeException e) {
+                bh.consume(e);
+            }
+        }
+    }
+
+    @Benchmark
+    public void infixPretty(Documento d, Blackhole bh) {
+        for (Node n : d.arboles) {
+            bh.consume(InfixPretty.render(n));
+        }
+    }
+
+    /** Resultados.html con los árboles como SVG en línea (sin Graphviz). */
+    @Benchmark
+    public void generarResultados(Documento d, Carpeta c) throws IOException {
+        HtmlReport.generarResultados(d.filas, d.arboles, c.html, true);
+    }
+}
@@ -0,0 +1,57 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Benchmarks JMH del lexer, el parser, la evaluación y el reporte (ver Fases).
+ * No forman parte de la aplicación: se compilan aparte, contra las clases de
+ * src y los jars de JMH (jmh-core, jmh-generator-annprocess, jopt-simple y
+ * commons-math3):
+ *
+ *   javac -encoding UTF-8 -d out/bench -cp "$JMH/*" -processorpath "$JMH/*" \
+ *         $(find src bench/src -name '*.java')
+ *   java -cp "out/bench:$JMH/*" bench.Principal [opciones de JMH]
+ *
+ * Sin '-bm', corre dos pasadas: tiempo medio por fase (ns/op) con el perfil
+ * de GC (gc.alloc.rate y gc.alloc.rate.norm = bytes asignados por documento)
+ * y luego throughput (documentos/s). Las opciones de JMH pasan tal cual, p.
+ * ej. 'Fases.lexer' para filtrar, '-p operaciones=100000' para otro tamaño o
+ * '-rf json -rff base.json' para comparar antes y después de un cambio.
+ */
+public final class Principal {
+
+    private Principal() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions linea = new CommandLineOptions(args);
+        if (linea.getIncludes().isEmpty()) {
+            linea = new CommandLineOptions(concatenar(args, Fases.class.getName()));
+        }
+        if (linea.getBenchModes().hasValue()) {
+            new Runner(new OptionsBuilder().parent(linea).addProfiler(GCProfiler.class).build()).run();
+            return;
+        }
+        Options porFase = new OptionsBuilder().parent(linea)
+                .mode(Mode.AverageTime).timeUnit(TimeUnit.NANOSECONDS)
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(porFase).run();
+        Options caudal = new OptionsBuilder().parent(linea)
+                .mode(Mode.Throughput).timeUnit(TimeUnit.SECONDS)
+                .build();
+        new Runner(caudal).run();
+    }
+
+    private static String[] concatenar(String[] args, String extra) {
+        String[] r = java.util.Arrays.copyOf(args, args.length + 1);
+        r[args.length] = extra;
+        return r;
+    }
+}
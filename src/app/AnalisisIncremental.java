@@ -0,0 +1,415 @@
+package app;
+
+import app.parser.ParseException;
+import app.parser.Parser;
+import app.report.OperacionResultado;
+import ast.Evaluador;
+import ast.Node;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
+import lexer.BufferTokens;
+import lexer.Lexer;
+import lexer.Token;
+import lexer.TokenType;
+
+/**
+ * Análisis del editor que reutiliza el del clic anterior. El documento queda
+ * partido en trozos, uno por Elemento de nivel superior (o error de tope) del
+ * parser tolerante, cada uno con sus tokens, errores, ASTs y filas ya
+ * evaluadas. Las posiciones se guardan relativas al inicio del trozo: un
+ * cambio más arriba solo las corre, no las invalida.
+ *
+ * Tras una edición el tramo dañado sale de comparar el texto nuevo con el
+ * anterior (prefijo y sufijo comunes). Se vuelve a lexear, parsear y evaluar
+ * desde el trozo anterior al cambio hasta el primer trozo intacto en el que el
+ * parser vuelve a quedar en el nivel superior; el resto se reutiliza.
+ *
+ * Cortar en un '<' es seguro porque ningún token lo contiene salvo como primer
+ * carácter, así que el lexeo de un trozo no depende del texto anterior. Del
+ * trozo siguiente el parser mira a lo sumo el primer token (en los mensajes
+ * de error), por eso el trozo previo al cambio también se rehace.
+ *
+ * El resultado es el mismo que SesionAnalisis.lexear(...).analizar() sobre el
+ * texto completo. Si el texto tiene '\0' (fin de entrada para el Lexer) o el
+ * parser aborta (p. ej. operación desconocida) se hace ese análisis completo.
+ *
+ * Si el hilo se interrumpe (p. ej. SwingWorker.cancel(true)) lanza
+ * CancellationException y el análisis anterior queda como estaba.
+ *
+ * Con 'alEvaluar' cada fila sale en orden apenas se conoce: las de los trozos
+ * reutilizados antes del cambio, las nuevas a medida que se evalúan, las de
+ * los trozos reutilizados después y al final las de errores de parseo.
+ */
+public final class AnalisisIncremental {
+
+    // Trozos intactos en los que se intenta cerrar el tramo antes de seguir hasta el final
+    private static final int INTENTOS = 3;
+    // Cada cuántos tokens se mira si el hilo fue interrumpido (el parser lo mira en cada Elemento)
+    private static final int REVISAR = 4096;
+
+    private final Evaluador evaluador = SesionAnalisis.evaluadorConfigurado();
+    private final int paralelismo = EvaluacionParalela.paralelismoConfigurado();
+
+    private String texto;          // null = no hay análisis previo que reutilizar
+    private List<Trozo> trozos;
+
+    private Consumer<OperacionResultado> alEvaluar; // de la llamada en curso; null = nadie espera filas
+    private int publicadas;
+
+    /** Tokens y errores léxicos de un tramo lexeado de una vez (los trozos guardan rangos). */
+    private static final class Tramo {
+        final BufferTokens tokens = new BufferTokens();
+        final BufferTokens errores = new BufferTokens();
+    }
+
+    private static final class Trozo {
+        final Tramo tramo;
+        final int linea0, columna0;        // inicio del trozo dentro del tramo
+        final int desdeToken;
+        int hastaToken, desdeError, hastaError;
+        int largo;                         // caracteres del documento
+        int lineas, resto;                 // saltos de línea y caracteres tras el último
+        final List<Node> arboles = new ArrayList<>();
+        List<OperacionResultado> filas;
+        List<Parser.ParseErrorInfo> errores;
+        ParseException primerError;
+
+        Trozo(Tramo tramo, int linea0, int columna0, int desdeToken) {
+            this.tramo = tramo;
+            this.linea0 = linea0;
+            this.columna0 = columna0;
+            this.desdeToken = desdeToken;
+        }
+    }
+
+    /** Fallo no recuperable del parser: se rehace todo con SesionAnalisis. */
+    private static final class Abortado extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        Abortado() {
+            super(null, null, false, false);
+        }
+    }
+
+    /** Analiza 'nuevo' reutilizando lo que no cambió desde la llamada anterior. */
+    public SesionAnalisis analizar(String nuevo) {
+        return analizar(nuevo, null);
+    }
+
+    /** Igual, y pasa cada fila (con su índice final) a 'alEvaluar' en orden, desde un solo hilo a la vez. */
+    public SesionAnalisis analizar(String nuevo, Consumer<OperacionResultado> alEvaluar) {
+        this.alEvaluar = alEvaluar;
+        this.publicadas = 0;
+        try {
+            if (nuevo.indexOf('\0') < 0) {
+                try {
+                    if (texto == null) {
+                        trozos = analizarTramo(nuevo, 0, nuevo.length(), 0, null);
+                    } else {
+                        actualizar(nuevo);
+                    }
+                    texto = nuevo;
+                    return armar();
+                } catch (Abortado ex) {
+                    // se cae al análisis completo (el parser aborta antes de publicar filas)
+                }
+            }
+            texto = null;
+            trozos = null;
+            return SesionAnalisis.lexear(new Lexer(nuevo), null).conAlEvaluar(alEvaluar).analizar();
+        } finally {
+            this.alEvaluar = null;
+        }
+    }
+
+    private void actualizar(String nuevo) {
+        String viejo = texto;
+        int max = Math.min(viejo.length(), nuevo.length());
+        int p = 0;
+        while (p < max && viejo.charAt(p) == nuevo.charAt(p)) p++;
+        if (p == viejo.length() && p == nuevo.length()) {
+            publicar(trozos);
+            return;
+        }
+        int s = 0;
+        while (s < max - p && viejo.charAt(viejo.length() - 1 - s) == nuevo.charAt(nuevo.length() - 1 - s)) s++;
+
+        // k: trozo con el carácter anterior al cambio; se rehace desde el trozo previo a k
+        int q = Math.max(p - 1, 0);
+        int k = 0, inicioK = 0;
+        while (k + 1 < trozos.size() && inicioK + trozos.get(k).largo <= q) {
+            inicioK += trozos.get(k).largo;
+            k++;
+        }
+        int i = Math.max(k - 1, 0);
+        int a = i < k ? inicioK - trozos.get(i).largo : inicioK;
+
+        // j: primer trozo que empieza dentro del sufijo sin cambios
+        int j = k + 1, inicioJ = inicioK + trozos.get(k).largo;
+        while (j < trozos.size() && inicioJ < viejo.length() - s) {
+            inicioJ += trozos.get(j).largo;
+            j++;
+        }
+        int delta = nuevo.length() - viejo.length();
+        for (int intento = 0; ; intento++) {
+            boolean hastaElFinal = j >= trozos.size() || intento == INTENTOS;
+            List<Trozo> medio = analizarTramo(nuevo, a, hastaElFinal ? nuevo.length() : inicioJ + delta, i,
+                    hastaElFinal ? null : trozos.get(j));
+            if (medio != null) {
+                List<Trozo> r = new ArrayList<>(trozos.subList(0, i));
+                r.addAll(medio);
+                if (!hastaElFinal) {
+                    publicar(trozos.subList(j, trozos.size()));
+                    r.addAll(trozos.subList(j, trozos.size()));
+                }
+                trozos = r;
+                return;
+            }
+            // El último Elemento siguió de largo: cerrar en el trozo intacto siguiente
+            inicioJ += trozos.get(j).largo;
+            j++;
+        }
+    }
+
+    /**
+     * Lexea, parsea y evalúa doc[a, b) como trozos. Si 'siguiente' no es null
+     * es el trozo que empieza en b: su primer token se le muestra al parser y
+     * el tramo tiene que terminar justo antes de él; si no, devuelve null.
+     * 'previos' son los trozos actuales anteriores al tramo, cuyas filas se
+     * publican antes de evaluar.
+     */
+    private List<Trozo> analizarTramo(String doc, int a, int b, int previos, Trozo siguiente) {
+        String sub = doc.substring(a, b);
+        Tramo tramo = new Tramo();
+        Lexer lx = new Lexer(sub);
+        int vueltas = 0;
+        for (TokenType t; (t = lx.escanear()) != TokenType.EOF; ) {
+            (t == TokenType.ERROR ? tramo.errores : tramo.tokens).agregar(lx, t);
+            if (++vueltas % REVISAR == 0) SesionAnalisis.revisarInterrupcion();
+        }
+        int[] lineas = iniciosDeLinea(sub);
+        int lineaFin = lineas.length, columnaFin = sub.length() - lineas[lineas.length - 1] + 1;
+
+        BufferTokens tokens = tramo.tokens;
+        int n = tokens.size();
+        Token ultimo = null;
+        if (siguiente != null) {
+            BufferTokens sig = siguiente.tramo.tokens;
+            int k = siguiente.desdeToken;
+            ultimo = new Token(sig.tipo(k), sig.lexema(k), lineaFin, columnaFin);
+        }
+        Parser parser = Parser.deBuffer(tokens, ultimo);
+
+        List<Trozo> out = new ArrayList<>();
+        Trozo actual = new Trozo(tramo, 1, 1, 0);
+        out.add(actual);
+        int erroresAntes = 0;
+        while (parser.posicion() < n) {
+            int h = parser.posicion();
+            if (h > 0 && tokens.tipo(h) != TokenType.NUMERO) {
+                // Elemento que empieza con '<': desde acá arranca otro trozo
+                erroresAntes = cerrarParseo(actual, parser, erroresAntes);
+                actual.hastaToken = h;
+                actual = new Trozo(tramo, tokens.linea(h), tokens.columna(h), h);
+                out.add(actual);
+            }
+            try {
+                parser.pasoTolerante(actual.arboles::add);
+            } catch (CancellationException ex) {
+                throw ex;
+            } catch (RuntimeException ex) {
+                if (siguiente != null) {
+                    return null; // quizá solo por cortar antes del final: probar con un tramo más largo
+                }
+                throw new Abortado();
+            }
+        }
+        if (parser.posicion() > n) {
+            return null;
+        }
+        cerrarParseo(actual, parser, erroresAntes);
+        actual.hastaToken = n;
+
+        // Largo, avance de posición y errores léxicos de cada trozo
+        int e = 0;
+        for (int m = 0; m < out.size(); m++) {
+            Trozo t = out.get(m);
+            int l2 = m + 1 < out.size() ? out.get(m + 1).linea0 : lineaFin;
+            int c2 = m + 1 < out.size() ? out.get(m + 1).columna0 : columnaFin;
+            int fin = lineas[l2 - 1] + c2 - 1;
+            t.largo = fin - (lineas[t.linea0 - 1] + t.columna0 - 1);
+            t.lineas = l2 - t.linea0;
+            t.resto = t.lineas > 0 ? c2 - 1 : c2 - t.columna0;
+            t.desdeError = e;
+            while (e < tramo.errores.size()
+                    && lineas[tramo.errores.linea(e) - 1] + tramo.errores.columna(e) - 1 < fin) {
+                e++;
+            }
+            t.hastaError = e;
+        }
+
+        // Evaluar solo los ASTs nuevos, todos juntos, y repartir las filas
+        List<Node> arboles = new ArrayList<>();
+        for (Trozo t : out) arboles.addAll(t.arboles);
+        if (previos > 0) publicar(trozos.subList(0, previos));
+        List<OperacionResultado> filas = EvaluacionParalela.evaluar(arboles, 1, paralelismo, evaluador,
+                alEvaluar == null ? null : this::publicar);
+        int f = 0;
+        for (Trozo t : out) {
+            t.filas = filas.subList(f, f + t.arboles.size());
+            f += t.arboles.size();
+        }
+        return out;
+    }
+
+    private void publicar(List<Trozo> ts) {
+        if (alEvaluar == null) {
+            return;
+        }
+        for (Trozo t : ts) {
+            for (OperacionResultado r : t.filas) publicar(r);
+        }
+    }
+
+    private void publicar(OperacionResultado r) {
+        alEvaluar.accept(conIndice(r, ++publicadas));
+    }
+
+    private static OperacionResultado conIndice(OperacionResultado r, int idx) {
+        return r.ok ? new OperacionResultado(idx, r.expresion, r.valor) : new OperacionResultado(idx, r.expresion, r.error);
+    }
+
+    private static int cerrarParseo(Trozo t, Parser parser, int erroresAntes) {
+        List<Parser.ParseErrorInfo> todos = parser.getErrores();
+        t.errores = new ArrayList<>(todos.subList(erroresAntes, todos.size()));
+        t.primerError = parser.retirarPrimerError();
+        return todos.size();
+    }
+
+    private static int[] iniciosDeLinea(String s) {
+        int[] r = new int[16];
+        int n = 1;
+        for (int i = s.indexOf('\n'); i >= 0; i = s.indexOf('\n', i + 1)) {
+            if (n == r.length) r = Arrays.copyOf(r, n * 2);
+            r[n++] = i + 1;
+        }
+        return Arrays.copyOf(r, n);
+    }
+
+    // ===== Armado de la sesión con las posiciones del documento =====
+
+    /** Pasa posiciones del tramo de un trozo a posiciones del documento. */
+    private static final class Ubicacion {
+        final Trozo trozo;
+        final int linea, columna;   // posición del trozo en el documento
+
+        Ubicacion(Trozo trozo, int linea, int columna) {
+            this.trozo = trozo;
+            this.linea = linea;
+            this.columna = columna;
+        }
+
+        int linea(int l) {
+            return l - trozo.linea0 + linea;
+        }
+
+        int columna(int l, int c) {
+            return l == trozo.linea0 ? c - trozo.columna0 + columna : c;
+        }
+
+        ParseException mover(ParseException e) {
+            return new ParseException(linea(e.linea), columna(e.linea, e.columna), e.detalle);
+        }
+
+        Parser.ParseErrorInfo mover(Parser.ParseErrorInfo e) {
+            ParseException causa = e.causa == null ? null : mover(e.causa);
+            return new Parser.ParseErrorInfo(linea(e.line), columna(e.line, e.col),
+                    causa == null ? e.msg : causa.getMessage(), causa);
+        }
+    }
+
+    private SesionAnalisis armar() {
+        Ubicacion[] ub = new Ubicacion[trozos.size()];
+        int[] primerToken = new int[trozos.size() + 1];
+        int linea = 1, columna = 1;
+        for (int m = 0; m < ub.length; m++) {
+            Trozo t = trozos.get(m);
+            ub[m] = new Ubicacion(t, linea, columna);
+            primerToken[m + 1] = primerToken[m] + t.hastaToken - t.desdeToken;
+            if (t.lineas > 0) {
+                linea += t.lineas;
+                columna = 1 + t.resto;
+            } else {
+                columna += t.resto;
+            }
+        }
+
+        List<String> erroresLexicos = new ArrayList<>();
+        List<Node> arboles = new ArrayList<>();
+        List<OperacionResultado> filas = new ArrayList<>();
+        ParseException primerError = null;
+        for (Ubicacion u : ub) {
+            Trozo t = u.trozo;
+            BufferTokens err = t.tramo.errores;
+            for (int e = t.desdeError; e < t.hastaError; e++) {
+                int l = err.linea(e);
+                erroresLexicos.add("LEXERROR '" + err.lexema(e) + "' @ " + u.linea(l) + ":" + u.columna(l, err.columna(e)));
+            }
+            arboles.addAll(t.arboles);
+            for (OperacionResultado r : t.filas) {
+                filas.add(conIndice(r, filas.size() + 1));
+            }
+            if (primerError == null && t.primerError != null) {
+                primerError = u.mover(t.primerError);
+            }
+        }
+        List<String> errs = new ArrayList<>();
+        for (Ubicacion u : ub) {
+            for (Parser.ParseErrorInfo e : u.trozo.errores) {
+                String msg = "ERROR DE PARSEO: " + u.mover(e);
+                errs.add(msg);
+                OperacionResultado fila = new OperacionResultado(filas.size() + 1, "(operación)", msg);
+                filas.add(fila);
+                if (alEvaluar != null) alEvaluar.accept(fila);
+            }
+        }
+        return SesionAnalisis.armada(new Tokens(ub, primerToken), erroresLexicos, arboles, errs, filas, primerError);
+    }
+
+    /** Líneas de out/tokens.txt armadas al pedirlas (no se guardan millones de String). */
+    private static final class Tokens extends AbstractList<String> {
+        private final Ubicacion[] ub;
+        private final int[] primerToken;
+
+        Tokens(Ubicacion[] ub, int[] primerToken) {
+            this.ub = ub;
+            this.primerToken = primerToken;
+        }
+
+        @Override
+        public String get(int i) {
+            Objects.checkIndex(i, size());
+            int m = Arrays.binarySearch(primerToken, 0, ub.length, i);
+            if (m < 0) {
+                m = -m - 2;
+            } else {
+                while (primerToken[m + 1] == i) m++; // trozos sin tokens
+            }
+            Ubicacion u = ub[m];
+            BufferTokens tk = u.trozo.tramo.tokens;
+            int k = u.trozo.desdeToken + (i - primerToken[m]);
+            int l = tk.linea(k);
+            return tk.tipo(k) + "('" + tk.lexema(k) + "')@" + u.linea(l) + ":" + u.columna(l, tk.columna(k));
+        }
+
+        @Override
+        public int size() {
+            return primerToken[ub.length];
+        }
+    }
+}
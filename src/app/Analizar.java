@@ -2,7 +2,6 @@ package app;
 
 import app.parser.ParseException;
 import app.parser.Parser;
-import app.parser.ParserAdapter;
 import ast.Node;
 import java.util.List;
 import lexer.Token;
@@ -13,8 +12,7 @@ public class Analizar {
     public static java.util.List<ast.Node> parsearArboles(java.util.List<lexer.Token> tokensDelLexer) {
         java.util.List<ast.Node> arboles = new java.util.ArrayList<>();
         try {
-            java.util.List<app.parser.Parser.Token> insumos = app.parser.ParserAdapter.adapt(tokensDelLexer);
-            app.parser.Parser p = new app.parser.Parser(insumos);
+            app.parser.Parser p = app.parser.Parser.deLexer(tokensDelLexer);
             arboles = p.parsePrograma();
         } catch (Exception e) {
             // si falla, devolvemos vacío
@@ -25,8 +23,7 @@ public class Analizar {
     public static java.util.List<app.report.OperacionResultado> analizar(java.util.List<lexer.Token> tokensDelLexer) {
         java.util.List<app.report.OperacionResultado> lista = new java.util.ArrayList<>();
         try {
-            java.util.List<app.parser.Parser.Token> insumos = app.parser.ParserAdapter.adapt(tokensDelLexer);
-            app.parser.Parser p = new app.parser.Parser(insumos);
+            app.parser.Parser p = app.parser.Parser.deLexer(tokensDelLexer);
             java.util.List<ast.Node> arboles = p.parsePrograma();
 
             int i = 1;
@@ -56,8 +53,7 @@ public class Analizar {
     public static String ejecutar(List<Token> tokensDelLexer) {
         StringBuilder sb = new StringBuilder();
         try {
-            List<Parser.Token> insumos = ParserAdapter.adapt(tokensDelLexer);
-            Parser p = new Parser(insumos);
+            Parser p = Parser.deLexer(tokensDelLexer);
             List<Node> arboles = p.parsePrograma();
 
             int i = 1;
@@ -91,8 +87,7 @@ public class Analizar {
 
     /** Usa Parser.parseBatchTolerante() y regresa mensajes legibles. */
     public static ParseBatch parsearArbolesTolerante(java.util.List<lexer.Token> tokens) {
-        var tokensParser = app.parser.ParserAdapter.adapt(tokens);
-        var parser = new app.parser.Parser(tokensParser);
+        var parser = app.parser.Parser.deLexer(tokens);
         var arboles = parser.parseBatchTolerante();
         java.util.List<String> errs = new java.util.ArrayList<>();
         for (var e : parser.getErrores()) errs.add("ERROR DE PARSEO: " + e.toString());
@@ -109,16 +104,7 @@ public class Analizar {
         int idx = 1;
         // ASTs válidos → filas OK (por constructor normal)
         for (var n : pb.arboles) {
-            try {
-                double val = n.evaluate();
-                out.add(new app.report.OperacionResultado(idx++, n.render(), val));
-            } catch (IllegalArgumentException | ArithmeticException ae) {
-                out.add(new app.report.OperacionResultado(idx++, n.render(),
-                        "ERROR DE EVALUACION: " + ae.getMessage()));
-            } catch (Exception e) {
-                out.add(new app.report.OperacionResultado(idx++, n.render(),
-                        "ERROR NO CONTROLADO: " + e.getMessage()));
-            }
+            out.add(evaluarFila(idx++, n));
         }
         // Errores de parseo → filas ERROR
         for (var msg : pb.errores) {
@@ -126,4 +112,50 @@ public class Analizar {
         }
         return out;
     }
+
+    /** Evalúa un AST y arma su fila (OK o ERROR) con los mismos textos de siempre. */
+    static app.report.OperacionResultado evaluarFila(int idx, ast.Node n) {
+        return evaluarFila(idx, n, ast.Evaluador.ARBOL);
+    }
+
+    /** Igual, pero evaluando con la estrategia indicada (árbol, VM de pila, ...). */
+    static app.report.OperacionResultado evaluarFila(int idx, ast.Node n, ast.Evaluador evaluador) {
+        long t0 = Metricas.ACTIVAS ? System.nanoTime() : 0;
+        app.eventos.EvaluacionArbol evento = new app.eventos.EvaluacionArbol();
+        evento.begin();
+        try {
+            double val = evaluador.evaluar(n);
+            medir(n, t0, evento, null);
+            return new app.report.OperacionResultado(idx, n.render(), val);
+        } catch (IllegalArgumentException | ArithmeticException ae) {
+            medir(n, t0, evento, ae);
+            return new app.report.OperacionResultado(idx, n.render(),
+                    "ERROR DE EVALUACION: " + ae.getMessage());
+        } catch (Exception e) {
+            medir(n, t0, evento, e);
+            return new app.report.OperacionResultado(idx, n.render(),
+                    "ERROR NO CONTROLADO: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Cierra el evento JFR (nodos y profundidad solo si se va a grabar) y, con
+     * -Dlfa.metricas, registra la latencia por operación raíz, nodos y errores.
+     */
+    private static void medir(ast.Node n, long t0, app.eventos.EvaluacionArbol evento, Exception error) {
+        evento.end();
+        String operacion = n instanceof ast.Op op ? op.getNombre() : "Numero";
+        if (evento.shouldCommit()) {
+            evento.operacion = operacion;
+            evento.nodos = EvaluacionParalela.contarNodos(n);
+            evento.profundidad = EvaluacionParalela.profundidad(n);
+            evento.error = error == null ? null : error.getMessage();
+            evento.commit();
+        }
+        if (Metricas.ACTIVAS) {
+            Metricas.operacion(operacion, System.nanoTime() - t0);
+            Metricas.contar("nodos", EvaluacionParalela.contarNodos(n));
+            if (error != null) Metricas.contar("errores.evaluacion", 1);
+        }
+    }
 }
@@ -0,0 +1,229 @@
+package app;
+
+import app.report.OperacionResultado;
+import ast.Evaluador;
+import ast.Node;
+import ast.Op;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Evaluación de los ASTs de nivel superior en paralelo (ForkJoinPool). Cada
+ * árbol es independiente; el trabajo se reparte por tamaño (cantidad de nodos):
+ * los árboles grandes van solos y primero, los pequeños se agrupan en lotes,
+ * así un POTENCIA enorme no frena a los demás.
+ *
+ * Las filas quedan en el mismo orden y con los mismos textos que la
+ * evaluación secuencial (Analizar.evaluarFila).
+ *
+ * Hay un ForkJoinPool por grado de paralelismo, creado la primera vez que se
+ * pide y compartido por todos los análisis del proceso (pedidos de Servidor,
+ * archivos de Lote): no se crean hilos por documento y N documentos en
+ * paralelo comparten los mismos N hilos de evaluación.
+ *
+ * Entre fila y fila se mira si el hilo fue interrumpido: entonces lanza
+ * CancellationException y, en paralelo, cancela también los lotes de ese
+ * análisis (los encolados no corren, los que corren paran en la fila
+ * siguiente), así un análisis cancelado (p. ej. por tiempo en Servidor) no
+ * sigue ocupando el pool.
+ */
+public final class EvaluacionParalela {
+
+    /** Propiedad de sistema con el grado de paralelismo (1 = secuencial). */
+    public static final String PROPIEDAD = "lfa.paralelismo";
+
+    // Lotes por hilo: suficiente holgura para balancear sin crear tareas diminutas
+    private static final int LOTES_POR_HILO = 8;
+
+    private static final Map<Integer, ForkJoinPool> POOLS = new ConcurrentHashMap<>();
+
+    private EvaluacionParalela() {
+    }
+
+    /** Paralelismo configurado con -Dlfa.paralelismo=N (por defecto 1). */
+    public static int paralelismoConfigurado() {
+        try {
+            return Math.max(1, Integer.parseInt(System.getProperty(PROPIEDAD, "1").trim()));
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+
+    /** El pool compartido de 'paralelismo' hilos (sus hilos son daemon: no retienen la JVM). */
+    private static ForkJoinPool pool(int paralelismo) {
+        return POOLS.computeIfAbsent(paralelismo, ForkJoinPool::new);
+    }
+
+    /**
+     * Evalúa 'arboles' con 'evaluador' y devuelve una fila por árbol, numeradas
+     * desde 'primerIndice'. El evaluador debe poder usarse desde varios hilos.
+     */
+    public static List<OperacionResultado> evaluar(List<Node> arboles, int primerIndice, int paralelismo,
+            Evaluador evaluador) {
+        return evaluar(arboles, primerIndice, paralelismo, evaluador, null);
+    }
+
+    /**
+     * Igual, y además pasa cada fila a 'alProducir' (si no es null) en orden
+     * apenas están listas ella y todas las anteriores; se llama desde un solo
+     * hilo a la vez.
+     */
+    public static List<OperacionResultado> evaluar(List<Node> arboles, int primerIndice, int paralelismo,
+            Evaluador evaluador, Consumer<OperacionResultado> alProducir) {
+        int n = arboles.size();
+        OperacionResultado[] filas = new OperacionResultado[n];
+        if (paralelismo <= 1 || n < 2) {
+            for (int i = 0; i < n; i++) {
+                SesionAnalisis.revisarInterrupcion();
+                filas[i] = Analizar.evaluarFila(primerIndice + i, arboles.get(i), evaluador);
+                if (alProducir != null) alProducir.accept(filas[i]);
+            }
+            return List.of(filas);
+        }
+
+        // 1) costo de cada árbol
+        long[] costo = new long[n];
+        long total = 0;
+        for (int i = 0; i < n; i++) {
+            costo[i] = contarNodos(arboles.get(i));
+            total += costo[i];
+        }
+
+        // 2) lotes contiguos de costo ~objetivo; un árbol más grande que el objetivo va solo
+        long objetivo = Math.max(1, total / ((long) paralelismo * LOTES_POR_HILO));
+        List<int[]> lotes = new ArrayList<>();   // {desde, hasta}
+        List<Long> costos = new ArrayList<>();
+        int desde = 0;
+        long acumulado = 0;
+        for (int i = 0; i < n; i++) {
+            if (costo[i] >= objetivo) {
+                if (i > desde) {
+                    lotes.add(new int[]{desde, i});
+                    costos.add(acumulado);
+                }
+                lotes.add(new int[]{i, i + 1});
+                costos.add(costo[i]);
+                desde = i + 1;
+                acumulado = 0;
+                continue;
+            }
+            acumulado += costo[i];
+            if (acumulado >= objetivo) {
+                lotes.add(new int[]{desde, i + 1});
+                costos.add(acumulado);
+                desde = i + 1;
+                acumulado = 0;
+            }
+        }
+        if (desde < n) {
+            lotes.add(new int[]{desde, n});
+            costos.add(acumulado);
+        }
+
+        // 3) los lotes más caros se encolan primero (LPT)
+        Integer[] orden = new Integer[lotes.size()];
+        for (int i = 0; i < orden.length; i++) orden[i] = i;
+        java.util.Arrays.sort(orden, (a, b) -> Long.compare(costos.get(b), costos.get(a)));
+
+        // Al terminar un lote se entregan las filas que ya forman un prefijo completo
+        // (las filas son inmutables, así que basta con ver la referencia)
+        int[] entregadas = {0};
+        // Los lotes de un pool compartido no se pueden interrumpir: miran esta marca
+        AtomicBoolean cancelado = new AtomicBoolean();
+        List<Callable<Void>> tareas = new ArrayList<>(orden.length);
+        for (Integer k : orden) {
+            int[] lote = lotes.get(k);
+            tareas.add(() -> {
+                for (int i = lote[0]; i < lote[1]; i++) {
+                    if (cancelado.get()) {
+                        throw new CancellationException("Análisis cancelado");
+                    }
+                    filas[i] = Analizar.evaluarFila(primerIndice + i, arboles.get(i), evaluador);
+                }
+                if (alProducir != null) {
+                    synchronized (entregadas) {
+                        while (entregadas[0] < n && filas[entregadas[0]] != null) {
+                            alProducir.accept(filas[entregadas[0]++]);
+                        }
+                    }
+                }
+                return null;
+            });
+        }
+
+        // submit + get y no invokeAll: su espera no se entera de las interrupciones
+        ForkJoinPool pool = pool(paralelismo);
+        List<Future<Void>> futuros = new ArrayList<>(tareas.size());
+        boolean listo = false;
+        try {
+            for (Callable<Void> t : tareas) {
+                futuros.add(pool.submit(t));
+            }
+            for (Future<Void> f : futuros) {
+                f.get();
+            }
+            listo = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Análisis cancelado");
+        } catch (ExecutionException e) {
+            // evaluarFila ya convierte las excepciones en filas: aquí solo llegan Error (p. ej. StackOverflowError)
+            Throwable causa = e.getCause();
+            if (causa instanceof Error err) throw err;
+            if (causa instanceof RuntimeException re) throw re;
+            throw new IllegalStateException(causa);
+        } finally {
+            if (!listo) {
+                // Los lotes de este análisis que quedan no deben seguir ocupando el pool
+                cancelado.set(true);
+                for (Future<Void> f : futuros) f.cancel(false);
+            }
+        }
+        return List.of(filas);
+    }
+
+    /** Cantidad de nodos del árbol (recorrido iterativo). */
+    static long contarNodos(Node raiz) {
+        long k = 0;
+        java.util.ArrayDeque<Node> pila = new java.util.ArrayDeque<>();
+        pila.push(raiz);
+        while (!pila.isEmpty()) {
+            Node n = pila.pop();
+            k++;
+            if (n instanceof Op op) {
+                for (Node h : op.getHijos()) pila.push(h);
+            }
+        }
+        return k;
+    }
+
+    /** Niveles del árbol (una hoja = 1), sin recursión. */
+    static int profundidad(Node raiz) {
+        int max = 0;
+        java.util.ArrayDeque<Node> pila = new java.util.ArrayDeque<>();
+        java.util.ArrayDeque<Integer> niveles = new java.util.ArrayDeque<>();
+        pila.push(raiz);
+        niveles.push(1);
+        while (!pila.isEmpty()) {
+            Node n = pila.pop();
+            int nivel = niveles.pop();
+            max = Math.max(max, nivel);
+            if (n instanceof Op op) {
+                for (Node h : op.getHijos()) {
+                    pila.push(h);
+                    niveles.push(nivel + 1);
+                }
+            }
+        }
+        return max;
+    }
+}
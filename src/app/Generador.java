@@ -0,0 +1,379 @@
+package app;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Generador de documentos sintéticos en el formato de etiquetas del proyecto,
+ * para probar a escala (archivos de muchos GB) y con entradas rotas. Con la
+ * misma semilla y las mismas opciones sale siempre el mismo documento.
+ *
+ *   java app.Generador salida.txt
+ *   java app.Main --generar salida.txt
+ *
+ * Escribe elemento por elemento: la memoria depende de la profundidad y la
+ * aridad de UN elemento, no del tamaño del archivo. Opciones (-D):
+ *
+ *   lfa.generador.tamano      bytes a escribir, con sufijo K/M/G (10M)
+ *   lfa.generador.semilla     (1)
+ *   lfa.generador.mezcla      pesos por operación, p. ej. SUMA=3,MOD=1,RAIZ=0
+ *                             (las ocho con peso 1)
+ *   lfa.generador.pr          probabilidad de que POTENCIA / RAIZ lleven su
+ *                             exponente / índice como &lt;P&gt; / &lt;R&gt; (0.8)
+ *   lfa.generador.profundidad niveles de Operacion como máximo (4)
+ *   lfa.generador.aridad      hijos como máximo de SUMA/RESTA/... (4)
+ *   lfa.generador.hojas       probabilidad de cortar antes de la profundidad
+ *                             máxima (0.3)
+ *   lfa.generador.duplicados  probabilidad de repetir un subárbol ya escrito (0)
+ *   lfa.generador.errores.lexicos     por hoja: un carácter inválido (0)
+ *   lfa.generador.errores.sintacticos por nodo: falta un cierre, sobra uno o
+ *                                     falta el número (0)
+ */
+public final class Generador {
+
+    public static final String PROPIEDAD_TAMANO = "lfa.generador.tamano";
+    public static final String PROPIEDAD_SEMILLA = "lfa.generador.semilla";
+    public static final String PROPIEDAD_MEZCLA = "lfa.generador.mezcla";
+    public static final String PROPIEDAD_PR = "lfa.generador.pr";
+    public static final String PROPIEDAD_PROFUNDIDAD = "lfa.generador.profundidad";
+    public static final String PROPIEDAD_ARIDAD = "lfa.generador.aridad";
+    public static final String PROPIEDAD_HOJAS = "lfa.generador.hojas";
+    public static final String PROPIEDAD_DUPLICADOS = "lfa.generador.duplicados";
+    public static final String PROPIEDAD_ERRORES_LEXICOS = "lfa.generador.errores.lexicos";
+    public static final String PROPIEDAD_ERRORES_SINTACTICOS = "lfa.generador.errores.sintacticos";
+
+    /** Las operaciones que conoce ast.ops.OperacionFactory. */
+    static final String[] OPERACIONES = {
+        "SUMA", "RESTA", "MULTIPLICACION", "DIVISION", "POTENCIA", "RAIZ", "INVERSO", "MOD"
+    };
+
+    /** Caracteres que el lexer no acepta (los dos últimos ocupan más de un byte en UTF-8). */
+    private static final String[] INVALIDOS = {"#", "@", "$", "&", "!", "?", "~", "é", "€"};
+
+    /** Subárboles guardados para repetir, por altura; no se guardan los más largos que esto. */
+    private static final int DUPLICABLES_POR_ALTURA = 64, MAX_DUPLICABLE = 4096;
+
+    private final long semilla;
+    private long tamano = 10L << 20;
+    private long operaciones; // 0 = hasta 'tamano'
+    private final double[] pesos = new double[OPERACIONES.length];
+    private double pr = 0.8, hojas = 0.3, duplicados, erroresLexicos, erroresSintacticos;
+    private int profundidad = 4, aridad = 4;
+
+    // Estado de una generación
+    private SplittableRandom r;
+    private double pesoTotal;
+    private List<List<String>> duplicables;
+    private final StringBuilder sb = new StringBuilder(1 << 16);
+    private int bytesExtra; // bytes UTF-8 de más (caracteres no ASCII) en sb
+    private int errores;    // errores escritos hasta ahora (un subárbol con errores no se repite)
+
+    public Generador(long semilla) {
+        this.semilla = semilla;
+        Arrays.fill(pesos, 1);
+    }
+
+    /** Generador según las propiedades -Dlfa.generador.* (ver la clase). */
+    public static Generador configurado() {
+        Generador g = new Generador(Long.getLong(PROPIEDAD_SEMILLA, 1))
+                .conTamano(bytes(System.getProperty(PROPIEDAD_TAMANO, "10M")))
+                .conPR(proporcion(PROPIEDAD_PR, 0.8))
+                .conProfundidad(Integer.getInteger(PROPIEDAD_PROFUNDIDAD, 4))
+                .conAridad(Integer.getInteger(PROPIEDAD_ARIDAD, 4))
+                .conHojas(proporcion(PROPIEDAD_HOJAS, 0.3))
+                .conDuplicados(proporcion(PROPIEDAD_DUPLICADOS, 0))
+                .conErrores(proporcion(PROPIEDAD_ERRORES_LEXICOS, 0), proporcion(PROPIEDAD_ERRORES_SINTACTICOS, 0));
+        String mezcla = System.getProperty(PROPIEDAD_MEZCLA);
+        if (mezcla != null && !mezcla.isBlank()) {
+            for (String par : mezcla.split(",")) {
+                String[] kv = par.split("=", 2);
+                if (kv.length != 2) {
+                    throw new IllegalArgumentException("Mezcla inválida: '" + par + "' (use OPERACION=peso)");
+                }
+                g.conPeso(kv[0].trim(), Double.parseDouble(kv[1].trim()));
+            }
+        }
+        return g;
+    }
+
+    /** "512", "64K", "10M", "2G" (potencias de 1024) a bytes. */
+    static long bytes(String s) {
+        String t = s.trim().toUpperCase(Locale.ROOT);
+        int corte = t.length() - 1;
+        long factor = switch (t.isEmpty() ? ' ' : t.charAt(corte)) {
+            case 'K' -> 1L << 10;
+            case 'M' -> 1L << 20;
+            case 'G' -> 1L << 30;
+            case 'T' -> 1L << 40;
+            default -> {
+                corte = t.length();
+                yield 1;
+            }
+        };
+        try {
+            return (long) (Double.parseDouble(t.substring(0, corte)) * factor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Tamaño inválido: '" + s + "' (p. ej. 512K, 10M, 2G)");
+        }
+    }
+
+    private static double proporcion(String propiedad, double porDefecto) {
+        String v = System.getProperty(propiedad);
+        return v == null || v.isBlank() ? porDefecto : Double.parseDouble(v.trim());
+    }
+
+    /** Bytes aproximados del documento (se termina el elemento que los supera). */
+    public Generador conTamano(long bytes) {
+        this.tamano = bytes;
+        return this;
+    }
+
+    /** Cantidad exacta de elementos de nivel superior, en lugar de un tamaño (0 = por tamaño). */
+    public Generador conOperaciones(long operaciones) {
+        this.operaciones = operaciones;
+        return this;
+    }
+
+    /** Peso relativo de una operación (0 = no aparece). */
+    public Generador conPeso(String operacion, double peso) {
+        int i = Arrays.asList(OPERACIONES).indexOf(operacion.toUpperCase(Locale.ROOT));
+        if (i < 0) {
+            throw new IllegalArgumentException("Operacion desconocida: " + operacion);
+        }
+        pesos[i] = Math.max(0, peso);
+        return this;
+    }
+
+    public Generador conPR(double pr) {
+        this.pr = pr;
+        return this;
+    }
+
+    public Generador conProfundidad(int profundidad) {
+        this.profundidad = Math.max(0, profundidad);
+        return this;
+    }
+
+    public Generador conAridad(int aridad) {
+        this.aridad = Math.max(2, aridad);
+        return this;
+    }
+
+    /** Probabilidad de que un nodo interno sea hoja antes de la profundidad máxima (0 = árboles completos). */
+    public Generador conHojas(double hojas) {
+        this.hojas = hojas;
+        return this;
+    }
+
+    public Generador conDuplicados(double duplicados) {
+        this.duplicados = duplicados;
+        return this;
+    }
+
+    public Generador conErrores(double lexicos, double sintacticos) {
+        this.erroresLexicos = lexicos;
+        this.erroresSintacticos = sintacticos;
+        return this;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Uso: java app.Generador <salida.txt>  (-D" + PROPIEDAD_TAMANO + "=10M -D"
+                    + PROPIEDAD_SEMILLA + "=1 ...; ver la documentación de la clase)");
+            System.exit(2);
+        }
+        Path destino = Path.of(args[0]);
+        long t0 = System.nanoTime();
+        long[] escrito = configurado().generar(destino);
+        long ms = (System.nanoTime() - t0) / 1_000_000;
+        System.out.printf(Locale.ROOT, "OK -> %d elementos, %d bytes en %d ms (%.1f MB/s) -> %s%n",
+                escrito[0], escrito[1], ms, escrito[1] / 1048576.0 / Math.max(1, ms) * 1000, destino);
+    }
+
+    /** El documento entero en memoria: solo para documentos chicos (benchmarks, pruebas). */
+    public String generar() {
+        StringBuilder texto = new StringBuilder();
+        try {
+            generar(texto);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return texto.toString();
+    }
+
+    /** Escribe el documento en 'destino' (UTF-8). Devuelve {elementos, bytes}. */
+    public long[] generar(Path destino) throws IOException {
+        if (destino.getParent() != null) {
+            Files.createDirectories(destino.getParent());
+        }
+        try (Writer w = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(destino),
+                StandardCharsets.UTF_8), 1 << 16)) {
+            return generar(w);
+        }
+    }
+
+    /** Igual, sobre cualquier Appendable (p. ej. un StringBuilder). */
+    public long[] generar(Appendable destino) throws IOException {
+        r = new SplittableRandom(semilla);
+        pesoTotal = Arrays.stream(pesos).sum();
+        if (pesoTotal <= 0) {
+            throw new IllegalArgumentException("La mezcla no tiene ninguna operación con peso > 0");
+        }
+        duplicables = new ArrayList<>();
+        for (int i = 0; i <= profundidad; i++) {
+            duplicables.add(new ArrayList<>());
+        }
+        long elementos = 0, bytes = 0;
+        while (operaciones > 0 ? elementos < operaciones : bytes < tamano) {
+            sb.setLength(0);
+            bytesExtra = 0;
+            if (r.nextDouble() < erroresSintacticos / 4) {
+                sb.append("</Operacion>\n"); // cierre suelto en el tope
+                errores++;
+            }
+            elemento(profundidad, 0, true);
+            sb.append('\n');
+            destino.append(sb);
+            bytes += sb.length() + bytesExtra;
+            elementos++;
+        }
+        return new long[] {elementos, bytes};
+    }
+
+    /** Un Elemento de altura máxima 'altura' en el nivel de sangría 'nivel'. */
+    private void elemento(int altura, int nivel, boolean tope) {
+        if (altura > 0 && duplicados > 0 && r.nextDouble() < duplicados && repetir(altura, nivel)) {
+            return;
+        }
+        if (altura == 0 || (!tope && r.nextDouble() < hojas)) {
+            hoja("Numero", nivel);
+            return;
+        }
+        int inicio = sb.length(), erroresAntes = errores;
+        String op = operacion();
+        sangria(nivel);
+        sb.append("<Operacion= ").append(op).append(">\n");
+        int hijos = switch (op) {
+            case "INVERSO" -> 1;
+            case "POTENCIA", "RAIZ", "MOD" -> 2;
+            default -> 2 + r.nextInt(aridad - 1);
+        };
+        if ((op.equals("POTENCIA") || op.equals("RAIZ")) && r.nextDouble() < pr) {
+            hoja(op.equals("POTENCIA") ? "P" : "R", nivel + 1);
+            hijos--;
+        }
+        for (int i = 0; i < hijos; i++) {
+            elemento(altura - 1, nivel + 1, false);
+        }
+        if (r.nextDouble() < erroresSintacticos / 4) {
+            errores++; // falta </Operacion>
+        } else {
+            sangria(nivel);
+            sb.append("</Operacion>\n");
+        }
+        if (duplicados > 0 && errores == erroresAntes && sb.length() - inicio <= MAX_DUPLICABLE) {
+            guardar(altura, nivel, sb.substring(inicio));
+        }
+    }
+
+    private String operacion() {
+        double x = r.nextDouble() * pesoTotal;
+        for (int i = 0; i < OPERACIONES.length; i++) {
+            x -= pesos[i];
+            if (x < 0) return OPERACIONES[i];
+        }
+        for (int i = OPERACIONES.length - 1; ; i--) {
+            if (pesos[i] > 0) return OPERACIONES[i]; // redondeo
+        }
+    }
+
+    /** &lt;Numero&gt;, &lt;P&gt; o &lt;R&gt; con un número; a veces con un error léxico o sintáctico. */
+    private void hoja(String etiqueta, int nivel) {
+        sangria(nivel);
+        double e = erroresSintacticos > 0 ? r.nextDouble() : 1;
+        if (e < erroresSintacticos / 4) {
+            sb.append("</").append(etiqueta).append(">\n"); // cierre sin apertura
+            errores++;
+            sangria(nivel);
+        }
+        sb.append('<').append(etiqueta).append("> ");
+        if (e >= erroresSintacticos / 4 && e < erroresSintacticos / 2) {
+            errores++; // falta el número
+        } else {
+            numero(etiqueta.equals("Numero"));
+        }
+        if (erroresLexicos > 0 && r.nextDouble() < erroresLexicos) {
+            String c = INVALIDOS[r.nextInt(INVALIDOS.length)];
+            sb.append(c);
+            bytesExtra += c.getBytes(StandardCharsets.UTF_8).length - c.length();
+            errores++;
+        }
+        if (e >= erroresSintacticos / 2 && e < erroresSintacticos * 3 / 4) {
+            sb.append('\n'); // falta el cierre
+            errores++;
+        } else {
+            sb.append(" </").append(etiqueta).append(">\n");
+        }
+    }
+
+    private void numero(boolean cualquiera) {
+        if (!cualquiera) {
+            sb.append(1 + r.nextInt(4)); // exponente / índice chico
+            return;
+        }
+        // Sin signo: el lexer no acepta números negativos
+        switch (r.nextInt(4)) {
+            case 0 -> sb.append(r.nextInt(10));
+            case 1 -> sb.append(r.nextInt(1000));
+            case 2 -> sb.append(r.nextInt(100)).append('.').append(r.nextInt(100));
+            default -> sb.append("0.").append(r.nextInt(1000));
+        }
+    }
+
+    /** Agrega un subárbol ya escrito de altura &lt;= 'altura'; false si todavía no hay. */
+    private boolean repetir(int altura, int nivel) {
+        int h = 1 + r.nextInt(altura);
+        List<String> candidatos = duplicables.get(h);
+        if (candidatos.isEmpty()) {
+            return false;
+        }
+        String texto = candidatos.get(r.nextInt(candidatos.size()));
+        // Se guardó sin sangría: cada línea la recibe del nivel actual
+        for (int i = 0, n = texto.length(); i < n; ) {
+            int fin = texto.indexOf('\n', i) + 1;
+            sangria(nivel);
+            sb.append(texto, i, fin);
+            i = fin;
+        }
+        return true;
+    }
+
+    private void guardar(int altura, int nivel, String texto) {
+        if (nivel > 0) {
+            texto = texto.replace("\n" + " ".repeat(4 * nivel), "\n").substring(4 * nivel);
+        }
+        List<String> l = duplicables.get(altura);
+        if (l.size() < DUPLICABLES_POR_ALTURA) {
+            l.add(texto);
+        } else {
+            l.set(r.nextInt(DUPLICABLES_POR_ALTURA), texto);
+        }
+    }
+
+    private void sangria(int nivel) {
+        for (int i = 0; i < nivel; i++) {
+            sb.append("    ");
+        }
+    }
+}
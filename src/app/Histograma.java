@@ -0,0 +1,87 @@
+package app;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latencias (ns) con cubetas log-lineales, como HdrHistogram:
+ * cada potencia de dos se parte en 32 cubetas, así que un percentil sale con
+ * ~3% de error relativo en todo el rango (de 1 ns a siglos) con memoria fija
+ * (~15 KB) y registrar() sin bloqueos.
+ */
+final class Histograma {
+
+    private static final int BITS = 5, SUB = 1 << BITS; // 32 cubetas por potencia de dos
+    private static final int CUBETAS = (64 - BITS) * SUB; // indice(Long.MAX_VALUE) + 1
+
+    private final AtomicLongArray cubetas = new AtomicLongArray(CUBETAS);
+    private final LongAdder cantidad = new LongAdder();
+    private final LongAdder suma = new LongAdder();
+    private final AtomicLong minimo = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong maximo = new AtomicLong(Long.MIN_VALUE);
+
+    void registrar(long valor) {
+        long v = Math.max(0, valor);
+        cubetas.incrementAndGet(indice(v));
+        cantidad.increment();
+        suma.add(v);
+        if (v < minimo.get()) minimo.accumulateAndGet(v, Math::min);
+        if (v > maximo.get()) maximo.accumulateAndGet(v, Math::max);
+    }
+
+    /** Valores < 64 van en su propia cubeta; el resto según exponente y 5 bits de mantisa. */
+    static int indice(long v) {
+        if (v < 2 * SUB) {
+            return (int) v;
+        }
+        int exponente = 63 - Long.numberOfLeadingZeros(v);
+        return (exponente - BITS) * SUB + (int) (v >>> (exponente - BITS));
+    }
+
+    /** Menor valor que cae en la cubeta 'i'. */
+    static long inferior(int i) {
+        if (i < 2 * SUB) {
+            return i;
+        }
+        int exponente = (i >> BITS) + BITS - 1;
+        return (long) (SUB + (i & (SUB - 1))) << (exponente - BITS);
+    }
+
+    long cantidad() {
+        return cantidad.sum();
+    }
+
+    long suma() {
+        return suma.sum();
+    }
+
+    long minimo() {
+        return cantidad() == 0 ? 0 : minimo.get();
+    }
+
+    long maximo() {
+        return cantidad() == 0 ? 0 : maximo.get();
+    }
+
+    /** Valor bajo el que queda la fracción 'q' (0..1) de los registros: el mayor de su cubeta, acotado al máximo. */
+    long percentil(double q) {
+        long n = 0;
+        for (int i = 0; i < CUBETAS; i++) {
+            n += cubetas.get(i);
+        }
+        if (n == 0) {
+            return 0;
+        }
+        long objetivo = Math.max(1, (long) Math.ceil(q * n));
+        long acumulado = 0;
+        for (int i = 0; i < CUBETAS; i++) {
+            acumulado += cubetas.get(i);
+            if (acumulado >= objetivo) {
+                long tope = i + 1 < CUBETAS ? inferior(i + 1) - 1 : Long.MAX_VALUE;
+                return Math.max(minimo(), Math.min(tope, maximo()));
+            }
+        }
+        return maximo();
+    }
+}
@@ -0,0 +1,271 @@
+package app;
+
+import app.report.ArbolGrafico;
+import app.report.CacheDiagramas;
+import app.report.OperacionResultado;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import lexer.Lexer;
+
+/**
+ * Modo lote: procesa muchos archivos de entrada en paralelo, cada uno con la
+ * misma salida que Main pero en su propia carpeta, y deja un resumen.
+ *
+ *   java app.Lote entradas/ 'nocturno/**.txt' uno.txt
+ *   java app.Main --lote ...
+ *
+ * Cada argumento es un archivo, un directorio (todos sus .txt, recursivo) o un
+ * patrón glob (se recorre desde la parte sin comodines). Los archivos van a un
+ * ForkJoinPool (robo de trabajo) del más grande al más chico, para que los
+ * grandes no queden para el final. Las salidas van a
+ * &lt;salida&gt;/&lt;ruta relativa sin extensión&gt;/ y el resumen a
+ * &lt;salida&gt;/resumen.csv (una fila por archivo y una de TOTAL).
+ *
+ * -Dlfa.lote.hilos=N (por defecto, un hilo por núcleo) y
+ * -Dlfa.lote.salida=DIR (por defecto out/lote).
+ */
+public final class Lote {
+
+    /** Propiedad de sistema con la cantidad de hilos del lote. */
+    public static final String PROPIEDAD_HILOS = "lfa.lote.hilos";
+    /** Propiedad de sistema con la carpeta de salida del lote. */
+    public static final String PROPIEDAD_SALIDA = "lfa.lote.salida";
+
+    private Lote() {
+    }
+
+    /** Un archivo a procesar y la carpeta donde van sus salidas. */
+    record Entrada(Path archivo, Path carpeta, long bytes) {
+    }
+
+    /** Conteos de un archivo (o del total). */
+    static final class Resumen {
+        String estado = "OK";
+        long tokens, opsOk, opsError, erroresLexicos, erroresSintacticos, ms;
+
+        void sumar(Resumen r) {
+            tokens += r.tokens;
+            opsOk += r.opsOk;
+            opsError += r.opsError;
+            erroresLexicos += r.erroresLexicos;
+            erroresSintacticos += r.erroresSintacticos;
+            ms += r.ms;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Uso: java app.Lote <archivo|directorio|glob>...  (-D" + PROPIEDAD_HILOS + "=N -D"
+                    + PROPIEDAD_SALIDA + "=DIR)");
+            System.exit(2);
+        }
+        int hilos = hilosConfigurados();
+        Path salida = Path.of(System.getProperty(PROPIEDAD_SALIDA, Path.of("out", "lote").toString()));
+
+        List<Entrada> entradas = buscar(args, salida);
+        System.out.println("Lote: " + entradas.size() + " archivos, " + hilos + " hilos -> " + salida);
+        long t0 = System.nanoTime();
+        List<Resumen> resumenes = procesar(entradas, hilos);
+        long ms = (System.nanoTime() - t0) / 1_000_000;
+
+        Resumen total = escribirResumen(entradas, resumenes, salida.resolve("resumen.csv"));
+        Path metricas = Metricas.escribir(salida);
+        if (metricas != null) {
+            System.err.println("Métricas en " + metricas);
+        }
+        long fallidos = resumenes.stream().filter(r -> !r.estado.equals("OK")).count();
+        System.out.printf(Locale.ROOT, "OK -> %d archivos (%d con fallo) en %d ms: %d operaciones OK, %d con error,"
+                + " %d errores léxicos, %d sintácticos. Resumen en %s%n", entradas.size(), fallidos, ms,
+                total.opsOk, total.opsError, total.erroresLexicos, total.erroresSintacticos, salida.resolve("resumen.csv"));
+    }
+
+    /** Hilos según -Dlfa.lote.hilos (por defecto, los núcleos disponibles). */
+    static int hilosConfigurados() {
+        int nucleos = Runtime.getRuntime().availableProcessors();
+        try {
+            return Math.max(1, Integer.parseInt(System.getProperty(PROPIEDAD_HILOS, String.valueOf(nucleos)).trim()));
+        } catch (NumberFormatException e) {
+            return nucleos;
+        }
+    }
+
+    /** Expande los argumentos a archivos (sin repetir), ordenados del más grande al más chico. */
+    static List<Entrada> buscar(String[] args, Path salida) throws IOException {
+        List<Entrada> entradas = new ArrayList<>();
+        Set<Path> vistos = new HashSet<>();
+        Set<Path> carpetas = new HashSet<>();
+        Path propia = salida.toAbsolutePath().normalize();
+        for (String arg : args) {
+            Path raiz;
+            List<Path> archivos = new ArrayList<>();
+            int comodin = primerComodin(arg);
+            if (comodin >= 0) {
+                // Glob: se recorre desde el último directorio antes del comodín
+                int corte = Math.max(arg.lastIndexOf('/', comodin), arg.lastIndexOf('\\', comodin));
+                raiz = corte < 0 ? Path.of("") : Path.of(arg.substring(0, corte + 1));
+                PathMatcher patron = FileSystems.getDefault().getPathMatcher("glob:" + arg);
+                agregarDe(raiz, p -> patron.matches(p), archivos);
+            } else {
+                Path p = Path.of(arg);
+                if (Files.isDirectory(p)) {
+                    raiz = p;
+                    agregarDe(raiz, x -> x.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".txt"), archivos);
+                } else if (Files.isRegularFile(p)) {
+                    raiz = p.toAbsolutePath().getParent();
+                    archivos.add(p);
+                } else {
+                    throw new IOException("No existe: " + arg);
+                }
+            }
+            for (Path a : archivos) {
+                Path absoluta = a.toAbsolutePath().normalize();
+                if (absoluta.startsWith(propia) || !vistos.add(absoluta)) {
+                    continue; // los .txt que generó un lote anterior no son entradas
+                }
+                Path relativa = raiz.toAbsolutePath().normalize().relativize(absoluta);
+                String nombre = relativa.toString().replaceAll("\\.[^.\\\\/]*$", "");
+                Path carpeta = salida.resolve(nombre.isEmpty() ? "entrada" : nombre);
+                for (int n = 2; !carpetas.add(carpeta); n++) {
+                    carpeta = salida.resolve(nombre + "_" + n); // mismo nombre desde otra raíz
+                }
+                entradas.add(new Entrada(a, carpeta, Files.size(a)));
+            }
+        }
+        entradas.sort(Comparator.comparingLong(Entrada::bytes).reversed());
+        return entradas;
+    }
+
+    private static int primerComodin(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if ("*?[{".indexOf(s.charAt(i)) >= 0) return i;
+        }
+        return -1;
+    }
+
+    private static void agregarDe(Path raiz, Predicate<Path> filtro, List<Path> archivos)
+            throws IOException {
+        try (Stream<Path> s = Files.walk(raiz.toString().isEmpty() ? Path.of(".") : raiz)) {
+            s.filter(Files::isRegularFile)
+                    .map(p -> raiz.toString().isEmpty() ? Path.of(".").relativize(p) : p)
+                    .filter(filtro)
+                    .sorted()
+                    .forEach(archivos::add);
+        }
+    }
+
+    /**
+     * Procesa las entradas en un ForkJoinPool de 'hilos'; se encolan en el
+     * orden recibido (más grandes primero). Un archivo que falla no detiene a
+     * los demás: queda con su estado en el resumen.
+     */
+    static List<Resumen> procesar(List<Entrada> entradas, int hilos) throws IOException, InterruptedException {
+        boolean graphviz = ArbolGrafico.usarGraphviz();
+        Metricas.formatoConfigurado(); // -Dlfa.metricas inválida: falla antes del primer archivo
+        CacheDiagramas diagramas = graphviz ? CacheDiagramas.configurada() : null; // compartida entre archivos
+        ForkJoinPool pool = new ForkJoinPool(hilos);
+        try {
+            List<Future<Resumen>> futuros = new ArrayList<>(entradas.size());
+            for (Entrada e : entradas) {
+                futuros.add(pool.submit(() -> procesarUno(e, graphviz, diagramas)));
+            }
+            List<Resumen> resumenes = new ArrayList<>(entradas.size());
+            for (Future<Resumen> f : futuros) {
+                try {
+                    resumenes.add(f.get());
+                } catch (ExecutionException ex) {
+                    Throwable causa = ex.getCause();
+                    if (causa instanceof Error err) throw err;
+                    throw new IllegalStateException(causa); // procesarUno ya captura las excepciones
+                }
+            }
+            return resumenes;
+        } finally {
+            pool.shutdown();
+            if (diagramas != null) {
+                diagramas.limpiar();
+            }
+        }
+    }
+
+    /** Lo mismo que Main para un archivo, sin consola ni navegador. */
+    static Resumen procesarUno(Entrada e, boolean graphviz, CacheDiagramas diagramas) {
+        Resumen r = new Resumen();
+        long t0 = System.nanoTime();
+        Metricas.Fase fase = Metricas.fase("documento");
+        try {
+            SesionAnalisis sesion;
+            try (Lexer lx = Lexer.abrir(e.archivo())) {
+                sesion = SesionAnalisis.lexear(lx, null);
+            }
+            r.tokens = sesion.tokens.size();
+            r.erroresLexicos = sesion.erroresLexicos.size();
+            Main.generarSalidas(sesion, e.carpeta(), false, graphviz, diagramas);
+
+            List<OperacionResultado> filas = sesion.resultados();
+            int arboles = sesion.arboles().size();
+            for (int i = 0; i < arboles; i++) {
+                if (filas.get(i).ok) r.opsOk++;
+                else r.opsError++;
+            }
+            r.erroresSintacticos = sesion.erroresSintacticos().size();
+        } catch (Exception | StackOverflowError ex) {
+            // Como Main: el parser puede abortar (operación desconocida) o la entrada no ser UTF-8 válido
+            r.estado = "FALLO: " + ex;
+        } finally {
+            fase.terminar();
+        }
+        r.ms = (System.nanoTime() - t0) / 1_000_000;
+        Metricas.contar("documentos", 1);
+        if (!r.estado.equals("OK")) {
+            System.err.println(e.archivo() + ": " + r.estado);
+        }
+        return r;
+    }
+
+    /** resumen.csv: una fila por archivo (en el orden procesado) y la de TOTAL, que además devuelve. */
+    static Resumen escribirResumen(List<Entrada> entradas, List<Resumen> resumenes, Path destino) throws IOException {
+        Files.createDirectories(destino.getParent());
+        Resumen total = new Resumen();
+        try (PrintWriter w = new PrintWriter(Files.newBufferedWriter(destino, StandardCharsets.UTF_8))) {
+            w.print("archivo,salida,estado,bytes,tokens,ops_ok,ops_error,errores_lexicos,errores_sintacticos,ms\r\n");
+            long bytes = 0;
+            for (int i = 0; i < entradas.size(); i++) {
+                Entrada e = entradas.get(i);
+                Resumen r = resumenes.get(i);
+                total.sumar(r);
+                bytes += e.bytes();
+                fila(w, csv(e.archivo().toString()), csv(e.carpeta().toString()), csv(r.estado), e.bytes(), r);
+            }
+            fila(w, "TOTAL", "", entradas.size() + " archivos", bytes, total);
+        }
+        return total;
+    }
+
+    private static void fila(PrintWriter w, String archivo, String carpeta, String estado, long bytes, Resumen r) {
+        w.print(archivo + "," + carpeta + "," + estado + "," + bytes + "," + r.tokens + "," + r.opsOk + ","
+                + r.opsError + "," + r.erroresLexicos + "," + r.erroresSintacticos + "," + r.ms + "\r\n");
+    }
+
+    private static String csv(String s) {
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0) {
+            return s;
+        }
+        return '"' + s.replace("\"", "\"\"") + '"';
+    }
+}
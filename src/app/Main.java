@@ -1,82 +1,138 @@
 package app;
 
 import app.report.ArbolGrafico;
+import app.report.CacheDiagramas;
 import app.report.HtmlReport;
 import app.report.OperacionResultado;
+import app.report.SalidaResultados;
+import java.io.IOException;
 import java.nio.file.*;
 import java.util.*;
 import lexer.*;
 
 public class Main {
     public static void main(String[] args) throws Exception {
-        // === 1. Leer entrada ===
-        String path = args.length > 0 ? args[0] : "resources/entrada.txt";
-        String src = Lexer.readFile(path);
-        Lexer lx = new Lexer(src);
+        // Modo lote: java app.Main --lote <directorio|archivo|glob>... (ver Lote)
+        if (args.length > 0 && args[0].equals("--lote")) {
+            Lote.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        // Servicio HTTP: java app.Main --servidor (ver Servidor)
+        if (args.length > 0 && args[0].equals("--servidor")) {
+            Servidor.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        // Documento sintético: java app.Main --generar <salida.txt> (ver Generador)
+        if (args.length > 0 && args[0].equals("--generar")) {
+            Generador.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
 
-        List<String> outTokens = new ArrayList<>();
-        List<String> outErrorsLex = new ArrayList<>();
-        List<Token> tokensParaParser = new ArrayList<>();
+        // === 1. Abrir entrada (streaming: el archivo no se carga completo en memoria) ===
+        String path = args.length > 0 ? args[0] : "resources/entrada.txt";
 
-        // === 2. Lexer ===
-        Token t;
-        while ((t = lx.next()).type != TokenType.EOF) {
-            if (t.type != TokenType.ERROR) {
-                String s = t.type + "('" + t.lexeme + "')@" + t.line + ":" + t.column;
-                System.out.println(s);
-                outTokens.add(s);
-                tokensParaParser.add(t);
-            } else {
-                String e = "LEXERROR '" + t.lexeme + "' @ " + t.line + ":" + t.column;
-                System.out.println(e);
-                outErrorsLex.add(e);
+        boolean graphviz = ArbolGrafico.usarGraphviz();
+        Metricas.formatoConfigurado(); // -Dlfa.metricas inválida: falla acá, no a mitad del análisis
+        CacheDiagramas diagramas = graphviz ? CacheDiagramas.configurada() : null; // árboles repetidos sin relanzar 'dot'
+        Metricas.Fase fase = Metricas.fase("documento");
+        try {
+            // === 2. Lexer ===
+            SesionAnalisis sesion;
+            try (Lexer lx = Lexer.abrir(Path.of(path))) {
+                sesion = SesionAnalisis.lexear(lx, System.out::println);
             }
+
+            // === 3 a 7. Archivos de texto, evaluación, árboles y HTML en out/ ===
+            generarSalidas(sesion, Path.of("out"), true, graphviz, diagramas);
+        } finally {
+            fase.terminar();
+        }
+        if (diagramas != null) {
+            diagramas.limpiar();
         }
-        for (Lexer.LexError e : lx.errores) {
-            String s = "LEXERROR '" + e.lexema + "' @ " + e.line + ":" + e.col;
-            if (!outErrorsLex.contains(s)) outErrorsLex.add(s);
+        Metricas.contar("documentos", 1);
+        Path metricas = Metricas.escribir(Path.of("out"));
+        if (metricas != null) {
+            System.err.println("Métricas en " + metricas);
+        }
+
+        ast.CacheEvaluacion cache = ast.CacheEvaluacion.activa();
+        if (cache != null) {
+            System.err.println(cache); // contadores de -Dlfa.cache
+        }
+
+        System.out.println(graphviz
+                ? "\nOK -> Generado out/Resultados.html, out/ERRORES_Grupo1.html y arbol_#.dot/.png"
+                : "\nOK -> Generado out/Resultados.html (con los árboles en SVG) y out/ERRORES_Grupo1.html");
+
+        // (Opcional) abrir en navegador
+        try {
+            java.awt.Desktop.getDesktop().browse(Path.of("out", "Resultados.html").toUri());
+        } catch (Exception ex) {
+            System.err.println("No se pudo abrir el navegador automáticamente.");
         }
+    }
 
+    /**
+     * Pasos 3 a 7 para una sesión ya lexeada, con todo en 'carpeta':
+     * tokens.txt, errores.txt, resultados.txt (y -Dlfa.salidas), arbol_#.dot/.png
+     * con graphviz, Resultados.html y ERRORES_Grupo1.html. Con 'consola' imprime
+     * el reporte y los avisos como siempre; Lote lo usa en silencio.
+     * 'diagramas' (puede ser null) se comparte entre archivos; limpiarla queda
+     * a cargo de quien llama.
+     */
+    static void generarSalidas(SesionAnalisis sesion, Path carpeta, boolean consola, boolean graphviz,
+            CacheDiagramas diagramas) throws IOException {
         // === 3. Guardar tokens/errores léxicos ===
-        Files.createDirectories(Path.of("out"));
-        Files.write(Path.of("out", "tokens.txt"), outTokens);
-        Files.write(Path.of("out", "errores.txt"), outErrorsLex);
+        Files.createDirectories(carpeta);
+        Files.write(carpeta.resolve("tokens.txt"), sesion.tokens);
+        Files.write(carpeta.resolve("errores.txt"), sesion.erroresLexicos);
 
-        // === 4. Reporte de texto (no tolerante, solo informativo) ===
-        String reporte = Analizar.ejecutar(tokensParaParser);
-        Files.writeString(Path.of("out", "resultados.txt"), reporte);
-        System.out.println("\n=== RESULTADOS ===\n" + reporte);
+        // === 4. Parseo + evaluación (una sola vez) y reporte de texto (no tolerante, solo informativo) ===
+        //      con -Dlfa.salidas=csv,jsonl,bin cada fila va además a resultados.* a medida que se evalúa
+        String reporte;
+        try (SalidaResultados salida = SalidaResultados.configurada(carpeta)) {
+            reporte = sesion.conSalida(salida).analizar().reporteTexto();
+        }
+        Files.writeString(carpeta.resolve("resultados.txt"), reporte);
+        if (consola) {
+            System.out.println("\n=== RESULTADOS ===\n" + reporte);
+        }
 
-        // === 5. USAR MODO TOLERANTE: ASTs válidos + errores de parseo acumulados ===
-        Analizar.ParseBatch batch = Analizar.parsearArbolesTolerante(tokensParaParser);
-        List<OperacionResultado> resultados = Analizar.analizarTolerante(tokensParaParser);
-        var arboles = batch.arboles;
+        // === 5. MODO TOLERANTE: ASTs válidos + errores de parseo acumulados (misma sesión) ===
+        List<OperacionResultado> resultados = sesion.resultados();
+        var arboles = sesion.arboles();
 
-        // === 6. Árboles .dot/.png solo para ASTs válidos ===
-        for (int i = 0; i < arboles.size(); i++) {
-            Path dot = Path.of("out", "arbol_" + (i + 1) + ".dot");
-            Path png = Path.of("out", "arbol_" + (i + 1) + ".png");
-            ArbolGrafico.generarDot(arboles.get(i), dot);
-            boolean okPng = ArbolGrafico.dotAPng(dot, png);
-            if (!okPng) {
-                System.err.println("Aviso: no se pudo generar PNG (¿falta Graphviz 'dot' en PATH?).");
+        // === 6. Árboles .dot/.png solo para ASTs válidos (con -Dlfa.arboles=graphviz; si no, SVG dentro del HTML) ===
+        Metricas.Fase fase = Metricas.fase("diagramas");
+        try {
+            for (int i = 0; graphviz && i < arboles.size(); i++) {
+                Path dot = carpeta.resolve("arbol_" + (i + 1) + ".dot");
+                Path png = carpeta.resolve("arbol_" + (i + 1) + ".png");
+                boolean okPng;
+                if (diagramas != null) {
+                    okPng = diagramas.dibujar(arboles.get(i), dot, png);
+                } else {
+                    ArbolGrafico.generarDot(arboles.get(i), dot);
+                    okPng = ArbolGrafico.dotAPng(dot, png);
+                }
+                if (!okPng && consola) {
+                    System.err.println("Aviso: no se pudo generar PNG (¿falta Graphviz 'dot' en PATH?).");
+                }
             }
+        } finally {
+            fase.terminar();
         }
 
         // === 7. HTML bonito (usa AST) + ERRORES combinados (léxicos + sintácticos) ===
-        HtmlReport.generarResultados(resultados, arboles, Path.of("out", "Resultados.html"));
-
-        List<String> erroresTotales = new ArrayList<>(outErrorsLex); // léxicos
-        erroresTotales.addAll(batch.errores);                        // sintácticos
-        HtmlReport.generarErrores(erroresTotales, Path.of("out", "ERRORES_Grupo1.html"), "Grupo1");
-
-        System.out.println("\nOK -> Generado out/Resultados.html, out/ERRORES_Grupo1.html y arbol_#.dot/.png");
-
-        // (Opcional) abrir en navegador
+        fase = Metricas.fase("html");
         try {
-            java.awt.Desktop.getDesktop().browse(Path.of("out", "Resultados.html").toUri());
-        } catch (Exception ex) {
-            System.err.println("No se pudo abrir el navegador automáticamente.");
+            HtmlReport.generarResultados(resultados, arboles, carpeta.resolve("Resultados.html"), !graphviz);
+
+            List<String> erroresTotales = sesion.erroresTotales(); // léxicos + sintácticos
+            HtmlReport.generarErrores(erroresTotales, carpeta.resolve("ERRORES_Grupo1.html"), "Grupo1");
+        } finally {
+            fase.terminar();
         }
     }
 }
@@ -0,0 +1,251 @@
+package app;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métricas del proceso: contadores (tokens, nodos, errores por tipo, ...),
+ * histogramas de latencia por fase (lexer, parser, evaluacion, diagramas,
+ * html, documento) y por operación de la raíz del árbol evaluado, y bytes
+ * asignados por fase (ThreadMXBean, del hilo que corre la fase: con
+ * -Dlfa.paralelismo &gt; 1 lo que asignan los hilos de la evaluación no entra).
+ *
+ * Se activan con -Dlfa.metricas=prometheus o =json; al terminar, Main y Lote
+ * las escriben en su carpeta de salida (metricas.prom / metricas.json, o en
+ * -Dlfa.metricas.archivo) y Servidor las muestra en GET /metricas. Apagadas
+ * (por defecto), ACTIVAS es una constante false: el JIT elimina los
+ * registros y fase() no crea nada.
+ *
+ *   Metricas.Fase fase = Metricas.fase("parser");
+ *   try { ... } finally { fase.terminar(); }
+ */
+public final class Metricas {
+
+    /** Propiedad de sistema con el formato ("prometheus" | "json"); vacía = apagadas. */
+    public static final String PROPIEDAD = "lfa.metricas";
+    /** Propiedad de sistema con el archivo de salida (por defecto metricas.prom/.json en la carpeta de salida). */
+    public static final String PROPIEDAD_ARCHIVO = "lfa.metricas.archivo";
+
+    private static final String FORMATO = formatoOApagadas();
+    public static final boolean ACTIVAS = FORMATO != null;
+
+    private static final com.sun.management.ThreadMXBean HILOS = bytesPorHilo();
+
+    private static final Map<String, LongAdder> CONTADORES = new ConcurrentHashMap<>();
+    private static final Map<String, Histograma> FASES = new ConcurrentHashMap<>();
+    private static final Map<String, LongAdder> BYTES_FASE = new ConcurrentHashMap<>();
+    private static final Map<String, Histograma> OPERACIONES = new ConcurrentHashMap<>();
+
+    private Metricas() {
+    }
+
+    /**
+     * Formato de -Dlfa.metricas, o null si están apagadas. Un valor desconocido
+     * lanza IllegalArgumentException: Main, Lote y Servidor lo llaman al
+     * arrancar para fallar con ese mensaje antes de procesar nada.
+     */
+    public static String formatoConfigurado() {
+        String f = System.getProperty(PROPIEDAD, "").trim().toLowerCase(Locale.ROOT);
+        return switch (f) {
+            case "" -> null;
+            case "prometheus", "json" -> f;
+            default -> throw new IllegalArgumentException("Formato de métricas desconocido: " + f + " (use prometheus | json)");
+        };
+    }
+
+    /** formatoConfigurado() sin lanzar: un valor desconocido deja las métricas apagadas. */
+    private static String formatoOApagadas() {
+        try {
+            return formatoConfigurado();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /** El ThreadMXBean con conteo de bytes asignados, o null si la JVM no lo tiene. */
+    private static com.sun.management.ThreadMXBean bytesPorHilo() {
+        if (!ACTIVAS || !(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean t)
+                || !t.isThreadAllocatedMemorySupported()) {
+            return null;
+        }
+        t.setThreadAllocatedMemoryEnabled(true);
+        return t;
+    }
+
+    /** Suma 'n' al contador 'nombre' (p. ej. "tokens", "errores.lexicos"). */
+    public static void contar(String nombre, long n) {
+        if (ACTIVAS) {
+            CONTADORES.computeIfAbsent(nombre, k -> new LongAdder()).add(n);
+        }
+    }
+
+    /** Registra cuánto tardó en evaluarse un árbol cuya raíz es 'operacion'. */
+    public static void operacion(String operacion, long nanos) {
+        if (ACTIVAS) {
+            OPERACIONES.computeIfAbsent(operacion, k -> new Histograma()).registrar(nanos);
+        }
+    }
+
+    /** Empieza a medir una fase; se registra con terminar(). Apagadas, devuelve siempre la misma fase vacía. */
+    public static Fase fase(String nombre) {
+        return ACTIVAS ? new Fase(nombre) : Fase.NADA;
+    }
+
+    /** Una medición en curso (tiempo y bytes asignados por el hilo actual). */
+    public static final class Fase {
+        static final Fase NADA = new Fase(null);
+
+        private final String nombre;
+        private final long inicio, bytesInicio;
+
+        private Fase(String nombre) {
+            this.nombre = nombre;
+            this.bytesInicio = nombre != null && HILOS != null ? HILOS.getCurrentThreadAllocatedBytes() : 0;
+            this.inicio = nombre != null ? System.nanoTime() : 0;
+        }
+
+        public void terminar() {
+            if (nombre == null) {
+                return;
+            }
+            long nanos = System.nanoTime() - inicio;
+            // Antes de registrar: la primera vez se crea el histograma y no es de la fase
+            long bytes = HILOS != null ? HILOS.getCurrentThreadAllocatedBytes() - bytesInicio : -1;
+            FASES.computeIfAbsent(nombre, k -> new Histograma()).registrar(nanos);
+            if (bytes >= 0) {
+                BYTES_FASE.computeIfAbsent(nombre, k -> new LongAdder()).add(bytes);
+            }
+        }
+    }
+
+    /** Content-Type de json() o de prometheus(). */
+    static String tipoContenido(boolean json) {
+        return json ? "application/json; charset=utf-8" : "text/plain; version=0.0.4; charset=utf-8";
+    }
+
+    /** true si el formato configurado es JSON. */
+    static boolean enJson() {
+        return "json".equals(FORMATO);
+    }
+
+    /**
+     * Si están activas, las escribe en -Dlfa.metricas.archivo o en
+     * carpeta/metricas.prom (.json) y devuelve el archivo; si no, null.
+     */
+    public static Path escribir(Path carpeta) throws IOException {
+        if (!ACTIVAS) {
+            return null;
+        }
+        String configurado = System.getProperty(PROPIEDAD_ARCHIVO);
+        Path destino = configurado != null && !configurado.isBlank() ? Path.of(configurado)
+                : carpeta.resolve(enJson() ? "metricas.json" : "metricas.prom");
+        if (destino.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(destino.toAbsolutePath().getParent());
+        }
+        try (Writer w = Files.newBufferedWriter(destino, StandardCharsets.UTF_8)) {
+            if (enJson()) json(w);
+            else prometheus(w);
+        }
+        return destino;
+    }
+
+    private static final double[] CUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    /** Formato de texto de Prometheus (0.0.4): contadores y summaries en segundos. */
+    public static void prometheus(Appendable w) throws IOException {
+        for (var e : ordenado(CONTADORES).entrySet()) {
+            String nombre = "lfa_" + e.getKey().replace('.', '_') + "_total";
+            w.append("# TYPE ").append(nombre).append(" counter\n")
+                    .append(nombre).append(' ').append(String.valueOf(e.getValue().sum())).append('\n');
+        }
+        resumen(w, "lfa_fase_segundos", "fase", FASES);
+        if (!BYTES_FASE.isEmpty()) {
+            w.append("# TYPE lfa_fase_bytes_asignados_total counter\n");
+            for (var e : ordenado(BYTES_FASE).entrySet()) {
+                w.append("lfa_fase_bytes_asignados_total{fase=\"").append(e.getKey()).append("\"} ")
+                        .append(String.valueOf(e.getValue().sum())).append('\n');
+            }
+        }
+        resumen(w, "lfa_evaluacion_segundos", "operacion", OPERACIONES);
+    }
+
+    private static void resumen(Appendable w, String nombre, String etiqueta, Map<String, Histograma> hs)
+            throws IOException {
+        if (hs.isEmpty()) {
+            return;
+        }
+        w.append("# TYPE ").append(nombre).append(" summary\n");
+        for (var e : ordenado(hs).entrySet()) {
+            Histograma h = e.getValue();
+            String base = nombre + "{" + etiqueta + "=\"" + e.getKey() + "\"";
+            for (double q : CUANTILES) {
+                w.append(base).append(",quantile=\"").append(String.valueOf(q)).append("\"} ")
+                        .append(segundos(h.percentil(q))).append('\n');
+            }
+            w.append(base).append(",quantile=\"1.0\"} ").append(segundos(h.maximo())).append('\n');
+            String etiquetas = "{" + etiqueta + "=\"" + e.getKey() + "\"} ";
+            w.append(nombre).append("_sum").append(etiquetas).append(segundos(h.suma())).append('\n');
+            w.append(nombre).append("_count").append(etiquetas).append(String.valueOf(h.cantidad())).append('\n');
+        }
+    }
+
+    private static String segundos(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1e9);
+    }
+
+    /**
+     * JSON: {"contadores":{"tokens":N,...},
+     *  "fases":{"lexer":{"n":..,"ns":{"suma":..,"min":..,"p50":..,"p90":..,"p99":..,"p999":..,"max":..},"bytesAsignados":..},...},
+     *  "operaciones":{"SUMA":{"n":..,"ns":{...}},...}}
+     */
+    public static void json(Appendable w) throws IOException {
+        w.append("{\"contadores\":{");
+        String sep = "";
+        for (var e : ordenado(CONTADORES).entrySet()) {
+            w.append(sep).append('"').append(e.getKey()).append("\":").append(String.valueOf(e.getValue().sum()));
+            sep = ",";
+        }
+        w.append("},\"fases\":");
+        histogramasJson(w, FASES, BYTES_FASE);
+        w.append(",\"operaciones\":");
+        histogramasJson(w, OPERACIONES, null);
+        w.append("}\n");
+    }
+
+    private static void histogramasJson(Appendable w, Map<String, Histograma> hs, Map<String, LongAdder> bytes)
+            throws IOException {
+        w.append('{');
+        String sep = "";
+        for (var e : ordenado(hs).entrySet()) {
+            Histograma h = e.getValue();
+            w.append(sep).append('"').append(e.getKey()).append("\":{\"n\":").append(String.valueOf(h.cantidad()))
+                    .append(",\"ns\":{\"suma\":").append(String.valueOf(h.suma()))
+                    .append(",\"min\":").append(String.valueOf(h.minimo()))
+                    .append(",\"p50\":").append(String.valueOf(h.percentil(0.5)))
+                    .append(",\"p90\":").append(String.valueOf(h.percentil(0.9)))
+                    .append(",\"p99\":").append(String.valueOf(h.percentil(0.99)))
+                    .append(",\"p999\":").append(String.valueOf(h.percentil(0.999)))
+                    .append(",\"max\":").append(String.valueOf(h.maximo())).append('}');
+            LongAdder b = bytes != null ? bytes.get(e.getKey()) : null;
+            if (b != null) {
+                w.append(",\"bytesAsignados\":").append(String.valueOf(b.sum()));
+            }
+            w.append('}');
+            sep = ",";
+        }
+        w.append('}');
+    }
+
+    private static <V> Map<String, V> ordenado(Map<String, V> m) {
+        return new TreeMap<>(m);
+    }
+}
@@ -0,0 +1,283 @@
+package app;
+
+import app.report.JsonReport;
+import app.report.OperacionResultado;
+import ast.Evaluador;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import lexer.Lexer;
+
+/**
+ * Servicio HTTP local (com.sun.net.httpserver) que analiza documentos en una
+ * JVM que queda caliente entre pedidos:
+ *
+ *   POST /analizar   cuerpo = el documento (UTF-8); responde JsonReport
+ *                    (filas, errores léxicos y sintácticos). 422 si el
+ *                    parser abortó, 413 si excede el tamaño, 503 si excede
+ *                    el tiempo.
+ *   GET  /salud      "ok"
+ *   GET  /metricas   app.Metricas en el formato de -Dlfa.metricas (o
+ *                    ?formato=json / ?formato=prometheus); 404 si están
+ *                    apagadas. Al detenerse también quedan en out/.
+ *
+ * Cada conexión se atiende en un hilo virtual si la JVM los tiene (Java 21;
+ * se buscan por reflexión porque el proyecto compila con 17) o si no en un
+ * pool de -Dlfa.servidor.hilos. El análisis corre en un pool de un hilo por
+ * núcleo, así un documento que tarda más que -Dlfa.servidor.timeout.ms se
+ * corta y el pedido responde igual; el evaluador se crea una sola vez.
+ *
+ * Escucha solo en la interfaz de loopback: no hay autenticación, así que
+ * /analizar y /metricas no deben quedar a la vista de la red. Para aceptar
+ * pedidos de otras máquinas hay que pedirlo con -Dlfa.servidor.host (p. ej.
+ * 0.0.0.0 o la IP de una interfaz).
+ *
+ * -Dlfa.servidor.host (loopback), -Dlfa.servidor.puerto (8080),
+ * -Dlfa.servidor.max.kb (1024), -Dlfa.servidor.timeout.ms (10000),
+ * -Dlfa.servidor.hilos (4 por núcleo).
+ */
+public final class Servidor {
+
+    /** Dirección en la que escucha; sin ella, solo loopback. */
+    public static final String PROPIEDAD_HOST = "lfa.servidor.host";
+    public static final String PROPIEDAD_PUERTO = "lfa.servidor.puerto";
+    public static final String PROPIEDAD_MAX_KB = "lfa.servidor.max.kb";
+    public static final String PROPIEDAD_TIMEOUT = "lfa.servidor.timeout.ms";
+    public static final String PROPIEDAD_HILOS = "lfa.servidor.hilos";
+
+    private final HttpServer http;
+    private final ExecutorService conexiones;
+    private final ExecutorService analisis;
+    private final Evaluador evaluador = SesionAnalisis.evaluadorConfigurado();
+    private final int maxBytes;
+    private final long timeoutMs;
+    private final boolean virtuales;
+
+    /** Servidor en loopback. */
+    public Servidor(int puerto, int maxBytes, long timeoutMs, int hilos) throws IOException {
+        this(InetAddress.getLoopbackAddress(), puerto, maxBytes, timeoutMs, hilos);
+    }
+
+    public Servidor(InetAddress host, int puerto, int maxBytes, long timeoutMs, int hilos) throws IOException {
+        this.maxBytes = maxBytes;
+        this.timeoutMs = timeoutMs;
+        ExecutorService v = hilosVirtuales();
+        this.virtuales = v != null;
+        this.conexiones = v != null ? v : Executors.newFixedThreadPool(hilos, hilos("lfa-conexion-"));
+        this.analisis = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), hilos("lfa-analisis-"));
+        // Sin TCP_NODELAY los encabezados y el cuerpo salen en dos segmentos y Nagle + ACK
+        // retardado agregan ~40 ms por pedido (el JDK lo lee al cargar el servidor)
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        this.http = HttpServer.create(new InetSocketAddress(host, puerto), 1024);
+        http.createContext("/analizar", this::analizar);
+        http.createContext("/salud", ex -> responder(ex, 200, "text/plain; charset=utf-8", "ok\n".getBytes(StandardCharsets.UTF_8)));
+        http.createContext("/metricas", Servidor::metricas);
+        http.setExecutor(conexiones);
+    }
+
+    public static void main(String[] args) throws IOException {
+        Metricas.formatoConfigurado(); // -Dlfa.metricas inválida: no arranca
+        int nucleos = Runtime.getRuntime().availableProcessors();
+        String host = System.getProperty(PROPIEDAD_HOST, "").trim();
+        Servidor s = new Servidor(
+                host.isEmpty() ? InetAddress.getLoopbackAddress() : InetAddress.getByName(host),
+                Integer.getInteger(PROPIEDAD_PUERTO, 8080),
+                Integer.getInteger(PROPIEDAD_MAX_KB, 1024) * 1024,
+                Long.getLong(PROPIEDAD_TIMEOUT, 10_000),
+                Integer.getInteger(PROPIEDAD_HILOS, 4 * nucleos));
+        Runtime.getRuntime().addShutdownHook(new Thread(s::detener));
+        s.iniciar();
+        System.out.println("Servidor en http://" + s.direccion() + "/analizar ("
+                + (s.virtuales ? "hilos virtuales" : "pool de hilos") + ")");
+    }
+
+    public void iniciar() {
+        http.start();
+    }
+
+    public int puerto() {
+        return http.getAddress().getPort();
+    }
+
+    /** host:puerto en el que escucha (la IP tal cual, p. ej. 127.0.0.1:8080). */
+    public String direccion() {
+        InetSocketAddress a = http.getAddress();
+        String ip = a.getAddress().getHostAddress();
+        return (ip.indexOf(':') >= 0 ? "[" + ip + "]" : ip) + ":" + a.getPort();
+    }
+
+    public void detener() {
+        http.stop(1);
+        conexiones.shutdownNow();
+        analisis.shutdownNow();
+        try {
+            Metricas.escribir(Path.of("out"));
+        } catch (IOException e) {
+            System.err.println("No se pudieron escribir las métricas: " + e.getMessage());
+        }
+    }
+
+    /** Executors.newVirtualThreadPerTaskExecutor() si existe y está habilitado; si no, null. */
+    private static ExecutorService hilosVirtuales() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory hilos(String prefijo) {
+        AtomicInteger n = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefijo + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    private void analizar(HttpExchange ex) throws IOException {
+        try (ex) {
+            if (!ex.getRequestMethod().equals("POST")) {
+                ex.getResponseHeaders().set("Allow", "POST");
+                responder(ex, 405, "text/plain; charset=utf-8", "Use POST\n".getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            byte[] cuerpo = leer(ex);
+            if (cuerpo == null) {
+                responderFalla(ex, 413, "El documento supera " + maxBytes / 1024 + " KB");
+                return;
+            }
+            String texto;
+            try {
+                texto = StandardCharsets.UTF_8.newDecoder()
+                        .onMalformedInput(CodingErrorAction.REPORT)
+                        .onUnmappableCharacter(CodingErrorAction.REPORT)
+                        .decode(ByteBuffer.wrap(cuerpo)).toString();
+            } catch (CharacterCodingException e) {
+                responderFalla(ex, 400, "El documento no es UTF-8 válido");
+                return;
+            }
+
+            Future<Respuesta> f = analisis.submit(() -> analizar(texto));
+            Respuesta r;
+            try {
+                r = f.get(timeoutMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                f.cancel(true);
+                responderFalla(ex, 503, "El análisis superó " + timeoutMs + " ms");
+                return;
+            } catch (InterruptedException e) {
+                f.cancel(true);
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                responderFalla(ex, 500, String.valueOf(e.getCause()));
+                return;
+            }
+            responder(ex, r.estado, "application/json; charset=utf-8", r.json);
+        }
+    }
+
+    private static void metricas(HttpExchange ex) throws IOException {
+        try (ex) {
+            if (!Metricas.ACTIVAS) {
+                responder(ex, 404, "text/plain; charset=utf-8",
+                        ("Métricas apagadas (use -D" + Metricas.PROPIEDAD + "=prometheus | json)\n")
+                                .getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            String consulta = ex.getRequestURI().getQuery();
+            boolean json = consulta != null && consulta.contains("formato=") ? consulta.contains("formato=json")
+                    : Metricas.enJson();
+            StringBuilder sb = new StringBuilder(4096);
+            if (json) Metricas.json(sb);
+            else Metricas.prometheus(sb);
+            responder(ex, 200, Metricas.tipoContenido(json), sb.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /** Cuerpo del pedido, o null si pasa de maxBytes (se mira Content-Length antes de leer). */
+    private byte[] leer(HttpExchange ex) throws IOException {
+        String largo = ex.getRequestHeaders().getFirst("Content-Length");
+        if (largo != null) {
+            try {
+                if (Long.parseLong(largo.trim()) > maxBytes) return null;
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        try (InputStream in = ex.getRequestBody()) {
+            byte[] b = in.readNBytes(maxBytes + 1);
+            return b.length > maxBytes ? null : b;
+        }
+    }
+
+    private record Respuesta(int estado, byte[] json) {
+    }
+
+    /** Lexer + parser + evaluación como en Main, sin archivos: todo va al JSON. */
+    private Respuesta analizar(String texto) throws IOException {
+        Metricas.contar("documentos", 1);
+        Metricas.Fase fase = Metricas.fase("documento");
+        try {
+            return analizarDocumento(texto);
+        } finally {
+            fase.terminar();
+        }
+    }
+
+    private Respuesta analizarDocumento(String texto) throws IOException {
+        SesionAnalisis sesion = SesionAnalisis.lexear(new Lexer(texto), null);
+        sesion.conEvaluador(evaluador).analizar();
+        List<OperacionResultado> filas;
+        List<String> sintacticos;
+        String falla = null;
+        try {
+            filas = sesion.resultados();
+            sintacticos = sesion.erroresSintacticos();
+        } catch (RuntimeException e) {
+            // El parser abortó (p. ej. operación desconocida): como en Main, sin filas
+            filas = List.of();
+            sintacticos = List.of();
+            falla = e.getMessage() != null ? e.getMessage() : e.toString();
+        }
+        ByteArrayOutputStream json = new ByteArrayOutputStream(256 + 96 * filas.size());
+        JsonReport.generar(json, sesion.tokens.size(), filas, sesion.erroresLexicos, sintacticos, falla);
+        return new Respuesta(falla == null ? 200 : 422, json.toByteArray());
+    }
+
+    private static void responderFalla(HttpExchange ex, int estado, String mensaje) throws IOException {
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        JsonReport.generar(json, 0, List.of(), List.of(), List.of(), mensaje);
+        responder(ex, estado, "application/json; charset=utf-8", json.toByteArray());
+    }
+
+    private static void responder(HttpExchange ex, int estado, String tipo, byte[] cuerpo) throws IOException {
+        ex.getResponseHeaders().set("Content-Type", tipo);
+        ex.sendResponseHeaders(estado, cuerpo.length == 0 ? -1 : cuerpo.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(cuerpo);
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package app;
+
+import app.parser.ParseException;
+import app.parser.Parser;
+import app.report.OperacionResultado;
+import app.report.SalidaResultados;
+import ast.Arena;
+import ast.Evaluador;
+import ast.Interner;
+import ast.Node;
+import ast.vm.Compilador;
+import ast.vm.EvaluadorJit;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
+import lexer.BufferTokens;
+import lexer.Lexer;
+import lexer.TokenType;
+
+/**
+ * Un análisis completo de un documento: lexea, parsea (modo tolerante) y
+ * evalúa UNA sola vez. El reporte de texto, las filas OperacionResultado, los
+ * .dot y los HTML salen todos del mismo conjunto de ASTs y valores.
+ *
+ * Uso: lexear(...) → guardar tokens/errores → analizar() → reportes.
+ */
+public final class SesionAnalisis {
+
+    /** Líneas de out/tokens.txt (tokens válidos en orden). */
+    public final List<String> tokens;
+    /** Líneas de out/errores.txt (errores léxicos). */
+    public final List<String> erroresLexicos;
+
+    private BufferTokens tokensParaParser = new BufferTokens();
+
+    private List<Node> arboles;
+    private List<String> erroresSintacticos;
+    private List<OperacionResultado> resultados;
+    private String reporteTexto;
+    private RuntimeException fallo; // excepción no controlada del parser (p. ej. operación desconocida)
+    private int paralelismo = EvaluacionParalela.paralelismoConfigurado();
+    private Evaluador evaluador = evaluadorConfigurado();
+    private boolean interning = Boolean.getBoolean(PROPIEDAD_INTERNING);
+    private Boolean arenaFueraDelHeap = arenaConfigurada(); // null = árbol de objetos
+    private SalidaResultados salida;
+    private Consumer<OperacionResultado> alEvaluar;
+
+    private SesionAnalisis() {
+        this(new ArrayList<>(), new ArrayList<>());
+    }
+
+    private SesionAnalisis(List<String> tokens, List<String> erroresLexicos) {
+        this.tokens = tokens;
+        this.erroresLexicos = erroresLexicos;
+    }
+
+    /**
+     * Sesión ya analizada con piezas calculadas por otro lado (ver
+     * AnalisisIncremental); el reporte de texto se arma igual que en analizar().
+     */
+    static SesionAnalisis armada(List<String> tokens, List<String> erroresLexicos, List<Node> arboles,
+            List<String> erroresSintacticos, List<OperacionResultado> resultados, ParseException primerError) {
+        SesionAnalisis s = new SesionAnalisis(tokens, erroresLexicos);
+        s.tokensParaParser = null;
+        s.reporteTexto = s.armarReporteTexto(primerError, resultados, arboles.size());
+        s.arboles = arboles;
+        s.erroresSintacticos = erroresSintacticos;
+        s.resultados = resultados;
+        return s;
+    }
+
+    /** Propiedad de sistema (true/false) que activa el hash-consing de subárboles repetidos. */
+    public static final String PROPIEDAD_INTERNING = "lfa.interning";
+
+    /** Propiedad de sistema que elige cómo se evalúan los ASTs: "arbol" (por defecto), "vm" o "jit". */
+    public static final String PROPIEDAD_EVALUADOR = "lfa.evaluador";
+
+    /**
+     * Evaluador según -Dlfa.evaluador: "arbol" usa Node.evaluate() directamente;
+     * "vm" compila cada árbol a código postfijo y lo ejecuta en la VM de pila
+     * (conviene cuando el mismo árbol se evalúa muchas veces); "jit" genera
+     * bytecode para los árboles grandes o reutilizados (ver EvaluadorJit).
+     */
+    public static Evaluador evaluadorConfigurado() {
+        String nombre = System.getProperty(PROPIEDAD_EVALUADOR, "arbol").trim().toLowerCase();
+        return switch (nombre) {
+            case "arbol" -> Evaluador.ARBOL;
+            case "vm" -> Compilador.EVALUADOR;
+            case "jit" -> EvaluadorJit.configurado();
+            default -> throw new IllegalArgumentException("Evaluador desconocido: " + nombre + " (use arbol | vm | jit)");
+        };
+    }
+
+    /** Estrategia de evaluación (mismos resultados con cualquiera). Debe fijarse antes de analizar(). */
+    public SesionAnalisis conEvaluador(Evaluador evaluador) {
+        this.evaluador = evaluador;
+        return this;
+    }
+
+    /**
+     * Comparte los subárboles iguales (DAG): menos memoria y cada subárbol
+     * repetido se evalúa una vez. Debe fijarse antes de analizar().
+     */
+    public SesionAnalisis conInterning(boolean interning) {
+        this.interning = interning;
+        return this;
+    }
+
+    /**
+     * -Dlfa.arena: "heap" u "offheap" guarda los ASTs en una ast.Arena (arreglos
+     * primitivos, en el heap o en memoria directa); sin valor, árbol de objetos.
+     */
+    static Boolean arenaConfigurada() {
+        String modo = System.getProperty(Arena.PROPIEDAD, "").trim().toLowerCase();
+        return switch (modo) {
+            case "" -> null;
+            case "heap" -> Boolean.FALSE;
+            case "offheap" -> Boolean.TRUE;
+            default -> throw new IllegalArgumentException("Arena desconocida: " + modo + " (use heap | offheap)");
+        };
+    }
+
+    /**
+     * Guarda los ASTs en una ast.Arena (menos memoria por nodo); null vuelve al
+     * árbol de objetos. Debe fijarse antes de analizar(). Se combina con los
+     * tres evaluadores y con el interning (los subárboles compartidos se
+     * evalúan una vez). Con el jit o la CacheEvaluacion, cada árbol que
+     * recuerdan retiene la Arena entera hasta que sale de su LRU.
+     */
+    public SesionAnalisis conArena(Boolean fueraDelHeap) {
+        this.arenaFueraDelHeap = fueraDelHeap;
+        return this;
+    }
+
+    /**
+     * analizar() escribe cada fila en 'salida' a medida que se evalúa (y
+     * después las de errores de parseo). Quien la pasa la cierra. Debe fijarse
+     * antes de analizar().
+     */
+    public SesionAnalisis conSalida(SalidaResultados salida) {
+        this.salida = salida;
+        return this;
+    }
+
+    /**
+     * analizar() pasa cada fila a 'alEvaluar' apenas se conoce, en orden (las
+     * de errores de parseo al final), desde un solo hilo a la vez. Debe
+     * fijarse antes de analizar().
+     */
+    public SesionAnalisis conAlEvaluar(Consumer<OperacionResultado> alEvaluar) {
+        this.alEvaluar = alEvaluar;
+        return this;
+    }
+
+    /** Grado de paralelismo de la evaluación (1 = secuencial). Debe fijarse antes de analizar(). */
+    public SesionAnalisis conParalelismo(int paralelismo) {
+        this.paralelismo = Math.max(1, paralelismo);
+        return this;
+    }
+
+    /**
+     * Consume el Lexer completo. 'eco' recibe cada línea (token o LEXERROR) en
+     * el orden en que aparece; puede ser null.
+     */
+    public static SesionAnalisis lexear(Lexer lx, Consumer<String> eco) {
+        SesionAnalisis s = new SesionAnalisis();
+        Metricas.Fase f = Metricas.fase("lexer");
+        app.eventos.LexeoDocumento evento = new app.eventos.LexeoDocumento();
+        evento.begin();
+        try {
+            lexear(lx, eco, s);
+        } finally {
+            f.terminar();
+            evento.end();
+            if (evento.shouldCommit()) {
+                evento.tokens = s.tokens.size();
+                evento.erroresLexicos = s.erroresLexicos.size();
+                evento.commit();
+            }
+        }
+        Metricas.contar("tokens", s.tokens.size());
+        Metricas.contar("errores.lexicos", s.erroresLexicos.size());
+        return s;
+    }
+
+    private static void lexear(Lexer lx, Consumer<String> eco, SesionAnalisis s) {
+        int vueltas = 0;
+        for (TokenType t; (t = lx.escanear()) != TokenType.EOF; ) {
+            if (++vueltas % REVISAR == 0) revisarInterrupcion();
+            String lexema = lx.lexemaToken(t);
+            if (t != TokenType.ERROR) {
+                String linea = t + "('" + lexema + "')@" + lx.lineaToken() + ":" + lx.columnaToken();
+                if (eco != null) eco.accept(linea);
+                s.tokens.add(linea);
+                s.tokensParaParser.agregar(lx, t);
+            } else {
+                String e = "LEXERROR '" + lexema + "' @ " + lx.lineaToken() + ":" + lx.columnaToken();
+                if (eco != null) eco.accept(e);
+                s.erroresLexicos.add(e);
+            }
+        }
+        Set<String> vistos = new HashSet<>(s.erroresLexicos);
+        for (Lexer.LexError e : lx.errores) {
+            String linea = "LEXERROR '" + e.lexema + "' @ " + e.line + ":" + e.col;
+            if (vistos.add(linea)) s.erroresLexicos.add(linea);
+        }
+    }
+
+    /** Parsea y evalúa una sola vez. Llamadas posteriores no hacen nada. */
+    public SesionAnalisis analizar() {
+        if (reporteTexto != null) {
+            return this;
+        }
+        Parser parser = Parser.deBuffer(tokensParaParser);
+        if (interning) {
+            parser.conInterning(new Interner());
+        }
+        List<Node> lista;
+        Metricas.Fase fase = Metricas.fase("parser");
+        try {
+            if (arenaFueraDelHeap == null) {
+                lista = parser.parseBatchTolerante();
+            } else {
+                Arena.Constructor arena = new Arena.Constructor();
+                parser.parseBatchTolerante(arena::agregar);
+                lista = arena.construir(arenaFueraDelHeap).vista();
+            }
+        } catch (CancellationException ex) {
+            throw ex; // hilo interrumpido: no es un fallo del parser
+        } catch (RuntimeException ex) {
+            // El modo tolerante solo recupera ParseException: el resto aborta el
+            // análisis igual que antes, pero después de poder escribir el reporte de texto.
+            fallo = ex;
+            lista = List.of();
+        } finally {
+            fase.terminar();
+        }
+        tokensParaParser = null; // ya no hacen falta
+
+        Consumer<OperacionResultado> alProducir = alEvaluar;
+        if (salida != null) {
+            Consumer<OperacionResultado> aLaSalida = this::aLaSalida;
+            alProducir = alEvaluar == null ? aLaSalida : aLaSalida.andThen(alEvaluar);
+        }
+        List<OperacionResultado> filas;
+        fase = Metricas.fase("evaluacion");
+        try {
+            filas = new ArrayList<>(EvaluacionParalela.evaluar(lista, 1, paralelismo, evaluador, alProducir));
+        } finally {
+            fase.terminar();
+        }
+        int idx = filas.size() + 1;
+        List<String> errs = new ArrayList<>();
+        for (var e : parser.getErrores()) {
+            String msg = "ERROR DE PARSEO: " + e.toString();
+            errs.add(msg);
+            OperacionResultado fila = new OperacionResultado(idx++, "(operación)", msg);
+            filas.add(fila);
+            if (alProducir != null) alProducir.accept(fila);
+        }
+
+        Metricas.contar("arboles", lista.size());
+        Metricas.contar("errores.sintacticos", errs.size());
+
+        reporteTexto = armarReporteTexto(parser.getPrimerError(), filas, lista.size());
+        arboles = lista;
+        erroresSintacticos = errs;
+        resultados = filas;
+        return this;
+    }
+
+    // Cada cuántos tokens mira lexear() si el hilo fue interrumpido
+    private static final int REVISAR = 4096;
+
+    /**
+     * Lanza CancellationException si el hilo fue interrumpido (Future.cancel(true),
+     * SwingWorker.cancel(true)); lexer, parser y evaluación la llaman en sus
+     * ciclos para que un análisis cancelado suelte el hilo enseguida.
+     */
+    static void revisarInterrupcion() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Análisis cancelado");
+        }
+    }
+
+    private void aLaSalida(OperacionResultado r) {
+        try {
+            salida.escribir(r);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Equivale a Analizar.ejecutar(): si el parseo no tolerante habría fallado,
+     * solo su error; si no, una línea por operación hasta el primer error de
+     * evaluación.
+     */
+    private String armarReporteTexto(ParseException primerError, List<OperacionResultado> filas, int nArboles) {
+        StringBuilder sb = new StringBuilder();
+        String nl = System.lineSeparator();
+        if (primerError != null) {
+            return sb.append("ERROR DE PARSEO: ").append(primerError.getMessage()).append(nl).toString();
+        }
+        if (fallo != null) {
+            String prefijo = fallo instanceof IllegalArgumentException || fallo instanceof ArithmeticException
+                    ? "ERROR DE EVALUACION: " : "ERROR NO CONTROLADO: ";
+            return sb.append(prefijo).append(fallo.getMessage()).append(nl).toString();
+        }
+        for (int i = 0; i < nArboles; i++) {
+            OperacionResultado r = filas.get(i);
+            if (!r.ok) {
+                sb.append(r.error).append(nl);
+                break;
+            }
+            sb.append("Op ").append(r.indice).append(": ")
+                    .append(r.expresion)
+                    .append(" = ").append(r.valor)
+                    .append(nl);
+        }
+        return sb.toString();
+    }
+
+    /** Mismo contenido que Analizar.ejecutar() (out/resultados.txt). */
+    public String reporteTexto() {
+        analizar();
+        return reporteTexto;
+    }
+
+    /** ASTs válidos (modo tolerante). */
+    public List<Node> arboles() {
+        return listo().arboles;
+    }
+
+    /** Errores sintácticos ya formateados ("ERROR DE PARSEO: ..."). */
+    public List<String> erroresSintacticos() {
+        return listo().erroresSintacticos;
+    }
+
+    /** Filas OK/ERROR: una por AST y luego una por error de parseo. */
+    public List<OperacionResultado> resultados() {
+        return listo().resultados;
+    }
+
+    /** Errores léxicos seguidos de los sintácticos (ERRORES_Grupo1.html). */
+    public List<String> erroresTotales() {
+        List<String> todos = new ArrayList<>(erroresLexicos);
+        todos.addAll(erroresSintacticos());
+        return todos;
+    }
+
+    private SesionAnalisis listo() {
+        analizar();
+        if (fallo != null) {
+            throw fallo;
+        }
+        return this;
+    }
+}
@@ -0,0 +1,32 @@
+package app.eventos;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/** Evaluación de un AST de nivel superior (Analizar.evaluarFila). */
+@Name("lfa.EvaluacionArbol")
+@Label("Evaluación de árbol")
+@Category({"LFA", "Evaluación"})
+@Description("Un AST de nivel superior evaluado con el Evaluador configurado")
+@StackTrace(false)
+@Threshold("1 ms")
+public class EvaluacionArbol extends jdk.jfr.Event {
+
+    @Label("Operación")
+    @Description("Nombre de la operación raíz, o Numero")
+    public String operacion;
+
+    @Label("Nodos")
+    public long nodos;
+
+    @Label("Profundidad")
+    public int profundidad;
+
+    @Label("Error")
+    @Description("Mensaje si la evaluación falló")
+    public String error;
+}
@@ -0,0 +1,31 @@
+package app.eventos;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/** Una ejecución del 'dot' de Graphviz (ArbolGrafico.dotAPng). */
+@Name("lfa.InvocacionDot")
+@Label("Invocación de dot")
+@Category({"LFA", "Graphviz"})
+@Description("Proceso externo 'dot' que convierte un .dot en PNG o SVG")
+@StackTrace(false)
+@Threshold("0 ms")
+public class InvocacionDot extends jdk.jfr.Event {
+
+    @Label("Ejecutable")
+    public String ejecutable;
+
+    @Label("Formato")
+    public String formato;
+
+    @Label("Archivo .dot")
+    public String archivo;
+
+    @Label("Código de salida")
+    @Description("-1 si no se pudo lanzar o se interrumpió")
+    public int codigoSalida;
+}
@@ -0,0 +1,24 @@
+package app.eventos;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/** Lexeo completo de un documento (SesionAnalisis.lexear). */
+@Name("lfa.LexeoDocumento")
+@Label("Lexeo de documento")
+@Category({"LFA", "Lexer"})
+@Description("Un documento recorrido por el Lexer hasta EOF")
+@StackTrace(false)
+@Threshold("0 ms")
+public class LexeoDocumento extends jdk.jfr.Event {
+
+    @Label("Tokens")
+    public int tokens;
+
+    @Label("Errores léxicos")
+    public int erroresLexicos;
+}
@@ -0,0 +1,35 @@
+package app.eventos;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/** Un Elemento de nivel superior parseado (o abandonado por un error). */
+@Name("lfa.ParseoElemento")
+@Label("Parseo de elemento")
+@Category({"LFA", "Parser"})
+@Description("Un Elemento de nivel superior: desde su etiqueta de apertura hasta el cierre o el error")
+@StackTrace(false)
+@Threshold("1 ms")
+public class ParseoElemento extends jdk.jfr.Event {
+
+    @Label("Línea")
+    public int linea;
+
+    @Label("Columna")
+    public int columna;
+
+    @Label("Operación")
+    @Description("Nombre de la operación raíz, o Numero/P/R")
+    public String operacion;
+
+    @Label("Tokens")
+    @Description("Tokens consumidos")
+    public int tokens;
+
+    @Label("Correcto")
+    public boolean ok;
+}
@@ -0,0 +1,30 @@
+package app.eventos;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/** Recuperación en modo pánico tras un error de parseo (Parser.sincronizarAProximoInicio). */
+@Name("lfa.RecuperacionParseo")
+@Label("Recuperación de parseo")
+@Category({"LFA", "Parser"})
+@Description("Tokens descartados hasta el próximo inicio de Elemento")
+@StackTrace(false)
+@Threshold("0 ms")
+public class RecuperacionParseo extends jdk.jfr.Event {
+
+    @Label("Línea")
+    public int linea;
+
+    @Label("Columna")
+    public int columna;
+
+    @Label("Tokens descartados")
+    public int descartados;
+
+    @Label("Motivo")
+    public String motivo;
+}
@@ -1,35 +1,53 @@
 package app.gui;
 
-import app.Analizar;
+import app.AnalisisIncremental;
+import app.SesionAnalisis;
 import app.report.ArbolGrafico;
+import app.report.CacheDiagramas;
 import app.report.HtmlReport;
 import app.report.OperacionResultado;
+import app.report.SalidaResultados;
+import ast.Node;
 import java.awt.*;
 import java.awt.event.KeyEvent;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
-import lexer.Lexer;
-import lexer.Token;
-import lexer.TokenType;
 
 /**
  * Ventana principal con menús: Archivo → Abrir, Guardar, Salir Acciones →
  * Analizar, Abrir Resultados, Abrir Errores, Abrir Árbol Ayuda → Manual de
  * Usuario (PDF), Manual Técnico (PDF), Acerca de
  *
- * Trabaja con el pipeline existente: - Lexer → tokens/errores - Analizar →
+ * Trabaja con el pipeline existente: - Lexer → tokens/errores - SesionAnalisis →
  * resultados y ASTs - HtmlReport → Resultados.html / Errores.html -
- * ArbolGrafico → arbol_#.dot/.png
+ * ArbolSvg → árboles en SVG dentro de Resultados.html (o ArbolGrafico →
+ * arbol_#.dot/.png con -Dlfa.arboles=graphviz)
+ *
+ * "Analizar" corre en un SwingWorker (TrabajoAnalisis): la ventana sigue
+ * respondiendo, la barra de estado muestra la fase y el avance, "Cancelar"
+ * lo detiene y las filas de resultados aparecen abajo a medida que salen.
  */
 public class AppFrame extends JFrame {
 
     private final JTextArea editor;
     private Path archivoActual = null;
+    // Guarda el análisis anterior: "Analizar" solo rehace lo que cambió en el editor
+    private final AnalisisIncremental analisis = new AnalisisIncremental();
+
+    // Barra de estado y resultados del análisis en curso
+    private final JTextArea salida = new JTextArea();
+    private final JLabel estado = new JLabel("Listo");
+    private final JProgressBar progreso = new JProgressBar(0, 100);
+    private final JButton cancelar = new JButton("Cancelar");
+    private JMenuItem miAnalizar;
+    private TrabajoAnalisis trabajo; // null = no hay análisis corriendo
 
     public AppFrame() {
         super("Proyecto 2 · Analizador de Operaciones");
@@ -43,7 +61,31 @@ public class AppFrame extends JFrame {
         editor.setTabSize(2);
         editor.setLineWrap(false);
         getContentPane().setLayout(new BorderLayout());
-        getContentPane().add(new JScrollPane(editor), BorderLayout.CENTER);
+
+        // Resultados debajo del editor
+        salida.setEditable(false);
+        salida.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        JSplitPane division = new JSplitPane(JSplitPane.VERTICAL_SPLIT, new JScrollPane(editor), new JScrollPane(salida));
+        division.setResizeWeight(0.75);
+        getContentPane().add(division, BorderLayout.CENTER);
+
+        // Barra de estado: fase, avance y cancelar
+        JPanel barra = new JPanel(new BorderLayout(8, 0));
+        barra.setBorder(BorderFactory.createEmptyBorder(2, 6, 2, 6));
+        progreso.setStringPainted(true);
+        cancelar.setEnabled(false);
+        cancelar.addActionListener(e -> {
+            if (trabajo != null && trabajo.cancel(true)) {
+                cancelar.setEnabled(false);
+                estado.setText("Cancelando...");
+            }
+        });
+        barra.add(estado, BorderLayout.CENTER);
+        JPanel derecha = new JPanel(new BorderLayout(8, 0));
+        derecha.add(progreso, BorderLayout.CENTER);
+        derecha.add(cancelar, BorderLayout.EAST);
+        barra.add(derecha, BorderLayout.EAST);
+        getContentPane().add(barra, BorderLayout.SOUTH);
 
         // Menú
         setJMenuBar(crearMenuBar());
@@ -84,7 +126,7 @@ public class AppFrame extends JFrame {
         JMenu mAcciones = new JMenu("Acciones");
         mAcciones.setMnemonic(KeyEvent.VK_C);
 
-        JMenuItem miAnalizar = new JMenuItem("Analizar");
+        miAnalizar = new JMenuItem("Analizar");
         miAnalizar.setAccelerator(KeyStroke.getKeyStroke("control ENTER"));
         miAnalizar.addActionListener(e -> accionAnalizar());
 
@@ -177,69 +219,185 @@ public class AppFrame extends JFrame {
     }
 
     private void accionAnalizar() {
-        try {
-            // 1) Lexer
-            String src = editor.getText();
-            Lexer lx = new Lexer(src);
-            List<String> outTokens = new ArrayList<>();
-            List<String> outErrors = new ArrayList<>();
-            List<Token> tokensParaParser = new ArrayList<>();
-
-            Token t;
-            while ((t = lx.next()).type != TokenType.EOF) {
-                if (t.type != TokenType.ERROR) {
-                    String s = t.type + "('" + t.lexeme + "')@" + t.line + ":" + t.column;
-                    outTokens.add(s);
-                    tokensParaParser.add(t);
-                } else {
-                    String e = "LEXERROR '" + t.lexeme + "' @ " + t.line + ":" + t.column;
-                    outErrors.add(e);
-                }
-            }
-            for (Lexer.LexError e : lx.errores) {
-                String s = "LEXERROR '" + e.lexema + "' @ " + e.line + ":" + e.col;
-                if (!outErrors.contains(s)) {
-                    outErrors.add(s);
-                }
+        if (trabajo != null) {
+            return; // ya hay uno corriendo
+        }
+        salida.setText("");
+        miAnalizar.setEnabled(false);
+        cancelar.setEnabled(true);
+        trabajo = new TrabajoAnalisis(editor.getText()); // el texto se lee en el EDT
+        trabajo.addPropertyChangeListener(ev -> {
+            switch (ev.getPropertyName()) {
+                case "progress" -> progreso.setValue((Integer) ev.getNewValue());
+                case "fase" -> estado.setText((String) ev.getNewValue());
+                default -> { }
             }
+        });
+        trabajo.execute();
+    }
 
-            Files.createDirectories(Path.of("out"));
-            Files.write(Path.of("out", "tokens.txt"), outTokens, StandardCharsets.UTF_8);
-            Files.write(Path.of("out", "errores.txt"), outErrors, StandardCharsets.UTF_8);
+    /**
+     * Análisis completo en segundo plano, por fases: análisis (incremental),
+     * archivos de texto, árboles .dot/.png (uno por AST, la más lenta) y HTML.
+     * Cada fila de resultados se publica apenas se evalúa; la cancelación se
+     * revisa dentro del análisis y entre árbol y árbol.
+     *
+     * cancel(true) llama a done() enseguida, pero el hilo puede seguir un
+     * momento hasta notar la interrupción: "Analizar" se rehabilita recién en
+     * terminado(), cuando doInBackground ya salió, para que dos análisis no
+     * compartan AnalisisIncremental ni escriban a la vez en out/.
+     */
+    private final class TrabajoAnalisis extends SwingWorker<Void, String> {
+        private final String texto;
+        // Lo toma el primero: doInBackground al arrancar o done() si se canceló antes
+        private final AtomicBoolean arranco = new AtomicBoolean();
+
+        TrabajoAnalisis(String texto) {
+            this.texto = texto;
+        }
 
-            // 2) Parser + AST + resultados (texto)
-            String reporte = Analizar.ejecutar(tokensParaParser);
-            Files.writeString(Path.of("out", "resultados.txt"), reporte, StandardCharsets.UTF_8);
+        private void fase(String nombre, int avance) {
+            firePropertyChange("fase", null, nombre);
+            setProgress(avance);
+        }
+
+        private void revisar() {
+            if (isCancelled() || Thread.currentThread().isInterrupted()) {
+                throw new CancellationException();
+            }
+        }
 
-            // 3) Parser + AST + resultados (tolerante)
-            var batch = Analizar.parsearArbolesTolerante(tokensParaParser);
-            List<OperacionResultado> resultados = Analizar.analizarTolerante(tokensParaParser);
+        @Override
+        protected Void doInBackground() throws Exception {
+            if (!arranco.compareAndSet(false, true)) {
+                return null; // cancelado antes de empezar: done() ya llamó a terminado()
+            }
+            try {
+                analizarTodo();
+                return null;
+            } finally {
+                SwingUtilities.invokeLater(this::terminado);
+            }
+        }
 
-            // 4) Árboles .dot/.png solo de los AST válidos
-            for (int i = 0; i < batch.arboles.size(); i++) {
+        private void analizarTodo() throws IOException {
+            // 1) Lexer + Parser + evaluación (incremental respecto del análisis anterior);
+            //    cada fila va a la vista (y a -Dlfa.salidas) apenas se evalúa
+            fase("Analizando...", 0);
+            SesionAnalisis sesion;
+            try (SalidaResultados archivo = SalidaResultados.configurada(Path.of("out"))) {
+                sesion = analisis.analizar(texto, r -> {
+                    revisar();
+                    publish(r.ok ? "Op " + r.indice + ": " + r.expresion + " = " + r.valor
+                            : "Op " + r.indice + ": " + r.error);
+                    if (archivo != null) escribir(archivo, r);
+                });
+            }
+            revisar();
+
+            // 2) Resultados tolerantes de la misma sesión
+            List<Node> arboles;
+            List<OperacionResultado> resultados;
+            try {
+                arboles = sesion.arboles();
+                resultados = sesion.resultados();
+            } catch (RuntimeException ex) {
+                escribirTextos(sesion); // como antes: los .txt se escriben aunque el parser haya abortado
+                throw ex;
+            }
+
+            // 3) tokens.txt, errores.txt y resultados.txt
+            fase("Escribiendo archivos...", 25);
+            escribirTextos(sesion);
+            revisar();
+
+            // 4) Árboles .dot/.png solo de los AST válidos (con Graphviz; si no, van en SVG dentro del HTML)
+            boolean graphviz = ArbolGrafico.usarGraphviz();
+            CacheDiagramas diagramas = graphviz ? CacheDiagramas.configurada() : null;
+            for (int i = 0; graphviz && i < arboles.size(); i++) {
+                revisar();
+                fase("Árbol " + (i + 1) + " de " + arboles.size(), 30 + (int) (60L * i / arboles.size()));
                 Path dot = Path.of("out", "arbol_" + (i + 1) + ".dot");
                 Path png = Path.of("out", "arbol_" + (i + 1) + ".png");
-                ArbolGrafico.generarDot(batch.arboles.get(i), dot);
-                ArbolGrafico.dotAPng(dot, png);
+                if (diagramas != null) {
+                    diagramas.dibujar(arboles.get(i), dot, png);
+                } else {
+                    ArbolGrafico.generarDot(arboles.get(i), dot);
+                    ArbolGrafico.dotAPng(dot, png);
+                }
+            }
+            if (diagramas != null) {
+                diagramas.limpiar();
             }
+            revisar();
 
             // 5) HTML bonito + Errores combinados
-            HtmlReport.generarResultados(resultados, batch.arboles, Path.of("out", "Resultados.html"));
+            fase("Generando HTML...", 90);
+            HtmlReport.generarResultados(resultados, arboles, Path.of("out", "Resultados.html"), !graphviz);
 
             // COMBINA errores léxicos + sintácticos:
-            List<String> todosLosErrores = new ArrayList<>(outErrors); // léxicos de lexer
-            todosLosErrores.addAll(batch.errores);                     // sintácticos del parser
-            HtmlReport.generarErrores(todosLosErrores, Path.of("out", "ERRORES_Grupo1.html"), "Grupo1");
+            HtmlReport.generarErrores(sesion.erroresTotales(), Path.of("out", "ERRORES_Grupo1.html"), "Grupo1");
+            fase("Listo", 100);
+        }
+
+        private void escribir(SalidaResultados archivo, OperacionResultado r) {
+            try {
+                archivo.escribir(r);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void escribirTextos(SesionAnalisis sesion) throws IOException {
+            Files.createDirectories(Path.of("out"));
+            Files.write(Path.of("out", "tokens.txt"), sesion.tokens, StandardCharsets.UTF_8);
+            Files.write(Path.of("out", "errores.txt"), sesion.erroresLexicos, StandardCharsets.UTF_8);
+            Files.writeString(Path.of("out", "resultados.txt"), sesion.reporteTexto(), StandardCharsets.UTF_8);
+        }
 
-            JOptionPane.showMessageDialog(this,
-                    "Análisis completado.\nSe generó out/Resultados.html, out/ERRORES_Grupo1.html y arbol_#.png",
-                    "OK", JOptionPane.INFORMATION_MESSAGE);
+        @Override
+        protected void process(List<String> filas) {
+            salida.append(String.join("\n", filas) + "\n");
+        }
 
-            abrirEnNavegador(Path.of("out", "Resultados.html"));
+        /** En el EDT, cuando el hilo del análisis ya terminó (también si se canceló). */
+        private void terminado() {
+            trabajo = null;
+            miAnalizar.setEnabled(true);
+            cancelar.setEnabled(false);
+            if (isCancelled()) {
+                estado.setText("Análisis cancelado");
+            }
+        }
 
-        } catch (Exception ex) {
-            ex.printStackTrace();
-            mostrarError("Fallo el análisis: " + ex.getMessage());
+        @Override
+        protected void done() {
+            try {
+                get();
+                JOptionPane.showMessageDialog(AppFrame.this,
+                        ArbolGrafico.usarGraphviz()
+                                ? "Análisis completado.\nSe generó out/Resultados.html, out/ERRORES_Grupo1.html y arbol_#.png"
+                                : "Análisis completado.\nSe generó out/Resultados.html (con los árboles) y out/ERRORES_Grupo1.html",
+                        "OK", JOptionPane.INFORMATION_MESSAGE);
+
+                abrirEnNavegador(Path.of("out", "Resultados.html"));
+            } catch (CancellationException ex) {
+                // el hilo puede seguir hasta notar la interrupción; si nunca arrancó, se cierra acá
+                if (arranco.compareAndSet(false, true)) {
+                    terminado();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException ex) {
+                Throwable causa = ex.getCause() instanceof CancellationException ? null : ex.getCause();
+                if (causa == null) {
+                    estado.setText("Análisis cancelado");
+                    return;
+                }
+                causa.printStackTrace();
+                estado.setText("Falló el análisis");
+                mostrarError("Fallo el análisis: " + causa.getMessage());
+            }
         }
     }
 
@@ -1,5 +1,21 @@
 package app.parser;
 
 public class ParseException extends RuntimeException {
-    public ParseException(String msg) { super(msg); }
+    /** Posición y texto del error por separado (0/mensaje completo si se creó solo con el texto). */
+    public final int linea, columna;
+    public final String detalle;
+
+    public ParseException(String msg) {
+        super(msg);
+        this.linea = 0;
+        this.columna = 0;
+        this.detalle = msg;
+    }
+
+    public ParseException(int linea, int columna, String detalle) {
+        super("[línea " + linea + ", col " + columna + "] " + detalle);
+        this.linea = linea;
+        this.columna = columna;
+        this.detalle = detalle;
+    }
 }
@@ -6,7 +6,11 @@ import ast.Op;
 import ast.ops.OperacionFactory;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import lexer.BufferTokens;
 
 /**
  * Parser recursivo-descent para el "XML" simplificado del proyecto. Gramática
@@ -37,8 +41,35 @@ public class Parser {
         }
     }
 
-    private final List<Token> tokens;
+    /**
+     * Clase de un token ya reconocida. Se calcula una sola vez por token: la
+     * ruta clásica con las expresiones regulares, la ruta tipada con un switch
+     * sobre lexer.TokenType.
+     */
+    private enum Clase {
+        ABRE_OP, CIERRA_OP, ABRE_NUM, CIERRA_NUM, ABRE_P, CIERRA_P, ABRE_R, CIERRA_R, NUMERO, IGNORABLE, OTRO
+    }
+
+    /**
+     * Tokens de la ruta tipada, por índice: deBuffer() lee los arreglos del
+     * lexer.BufferTokens sin crear un lexer.Token por token; deLexer() envuelve
+     * una List<lexer.Token> ya armada.
+     */
+    private interface Fuente {
+        lexer.TokenType tipo(int i);
+
+        String lexema(int i);
+
+        int linea(int i);
+
+        int columna(int i);
+    }
+
+    private final List<Token> tokens;              // ruta clásica (null en la tipada)
+    private final Fuente fuente;                   // ruta tipada (null en la clásica)
+    private final Clase[] clases;
     private int pos = 0;
+    private ast.Interner interner;                 // null = sin hash-consing
 
     // Patrones de reconocimiento por texto
     private static final Pattern OPEN_OP = Pattern.compile("^<\\s*Operacion\\s*=\\s*([A-Za-z_]+)\\s*>$");
@@ -53,6 +84,186 @@ public class Parser {
 
     public Parser(List<Token> tokens) {
         this.tokens = tokens;
+        this.fuente = null;
+        this.clases = new Clase[tokens.size()];
+        for (int i = 0; i < clases.length; i++) {
+            Token t = tokens.get(i);
+            clases[i] = t == null ? Clase.IGNORABLE : clasificarTexto(t.lexeme);
+        }
+    }
+
+    private Parser(Fuente fuente, Clase[] clases) {
+        this.tokens = null;
+        this.fuente = fuente;
+        this.clases = clases;
+    }
+
+    /**
+     * Ruta tipada: consume los lexer.Token tal cual, decidiendo por TokenType
+     * (sin ParserAdapter ni expresiones regulares). Acepta el mismo lenguaje y
+     * produce los mismos mensajes que la ruta clásica.
+     */
+    public static Parser deLexer(List<lexer.Token> tokens) {
+        Clase[] clases = new Clase[tokens.size()];
+        for (int i = 0; i < clases.length; i++) {
+            clases[i] = clasificar(tokens.get(i));
+        }
+        return new Parser(new Fuente() {
+            @Override
+            public lexer.TokenType tipo(int i) {
+                return tokens.get(i).type;
+            }
+
+            @Override
+            public String lexema(int i) {
+                return tokens.get(i).lexeme;
+            }
+
+            @Override
+            public int linea(int i) {
+                return tokens.get(i).line;
+            }
+
+            @Override
+            public int columna(int i) {
+                return tokens.get(i).column;
+            }
+        }, clases);
+    }
+
+    /**
+     * Ruta tipada sobre el buffer del Lexer: clasifica por tipo y largo del
+     * lexema y solo arma un String para los números, los nombres de operación
+     * y los mensajes de error. Mismo resultado que deLexer(b.comoLista()).
+     */
+    public static Parser deBuffer(BufferTokens b) {
+        return deBuffer(b, null);
+    }
+
+    /**
+     * Igual, con 'siguiente' como un token más después del buffer (o null):
+     * AnalisisIncremental parsea por tramos y le muestra al parser el primer
+     * token del tramo que sigue.
+     */
+    public static Parser deBuffer(BufferTokens b, lexer.Token siguiente) {
+        int n = b.size();
+        Clase[] clases = new Clase[siguiente == null ? n : n + 1];
+        for (int i = 0; i < n; i++) {
+            clases[i] = clasificar(b.tipo(i), b.largoLexema(i), b, i);
+        }
+        if (siguiente != null) {
+            clases[n] = clasificar(siguiente);
+        }
+        return new Parser(new Fuente() {
+            @Override
+            public lexer.TokenType tipo(int i) {
+                return i == n ? siguiente.type : b.tipo(i);
+            }
+
+            @Override
+            public String lexema(int i) {
+                return i == n ? siguiente.lexeme : b.lexema(i);
+            }
+
+            @Override
+            public int linea(int i) {
+                return i == n ? siguiente.line : b.linea(i);
+            }
+
+            @Override
+            public int columna(int i) {
+                return i == n ? siguiente.column : b.columna(i);
+            }
+        }, clases);
+    }
+
+    /**
+     * Activa el hash-consing: los subárboles iguales salen como un único nodo
+     * compartido (el resultado es un DAG). Los reportes no cambian.
+     */
+    public Parser conInterning(ast.Interner interner) {
+        this.interner = interner;
+        return this;
+    }
+
+    private Node internar(Node n) {
+        return interner == null ? n : interner.internar(n);
+    }
+
+    private static Clase clasificarTexto(String lexeme) {
+        if (lexeme.isBlank()) return Clase.IGNORABLE;
+        String lx = lexeme.trim();
+        if (OPEN_OP.matcher(lx).matches()) return Clase.ABRE_OP;
+        if (CLOSE_OP.matcher(lx).matches()) return Clase.CIERRA_OP;
+        if (OPEN_NUM.matcher(lx).matches()) return Clase.ABRE_NUM;
+        if (CLOSE_NUM.matcher(lx).matches()) return Clase.CIERRA_NUM;
+        if (OPEN_P.matcher(lx).matches()) return Clase.ABRE_P;
+        if (CLOSE_P.matcher(lx).matches()) return Clase.CIERRA_P;
+        if (OPEN_R.matcher(lx).matches()) return Clase.ABRE_R;
+        if (CLOSE_R.matcher(lx).matches()) return Clase.CIERRA_R;
+        if (NUMBER.matcher(lx).matches()) return Clase.NUMERO;
+        return Clase.OTRO;
+    }
+
+    private static Clase clasificar(lexer.Token t) {
+        return switch (t.type) {
+            case ABRIROPERACION -> esNombreOp(t.lexeme) ? Clase.ABRE_OP : clasificarTexto(ParserAdapter.lexema(t));
+            case CERRAROPERACION -> Clase.CIERRA_OP;
+            case ABRIRONUMERO -> Clase.ABRE_NUM;
+            case CERRARNUMERO -> Clase.CIERRA_NUM;
+            case ABRIRO_P -> Clase.ABRE_P;
+            case CERRAR_P -> Clase.CIERRA_P;
+            case ABRIRO_R -> Clase.ABRE_R;
+            case CERRAR_R -> Clase.CIERRA_R;
+            case NUMERO -> esNumero(t.lexeme) ? Clase.NUMERO : clasificarTexto(t.lexeme);
+            case ESPACIO -> Clase.IGNORABLE;
+            default -> clasificarTexto(t.lexeme); // ERROR, EOF, ... (no llegan desde Main)
+        };
+    }
+
+    /**
+     * clasificar(b.token(i)) sin armar el token: en lo que emite el Lexer el
+     * lexema de ABRIROPERACION son mayúsculas y el de NUMERO es D+(.D+), así
+     * que basta con que no estén vacíos.
+     */
+    private static Clase clasificar(lexer.TokenType tipo, int largo, BufferTokens b, int i) {
+        return switch (tipo) {
+            case ABRIROPERACION -> largo > 0 ? Clase.ABRE_OP : Clase.OTRO;
+            case CERRAROPERACION -> Clase.CIERRA_OP;
+            case ABRIRONUMERO -> Clase.ABRE_NUM;
+            case CERRARNUMERO -> Clase.CIERRA_NUM;
+            case ABRIRO_P -> Clase.ABRE_P;
+            case CERRAR_P -> Clase.CIERRA_P;
+            case ABRIRO_R -> Clase.ABRE_R;
+            case CERRAR_R -> Clase.CIERRA_R;
+            case NUMERO -> largo > 0 ? Clase.NUMERO : Clase.IGNORABLE;
+            case ESPACIO -> Clase.IGNORABLE;
+            default -> clasificarTexto(b.lexema(i)); // ERROR, EOF, ... (no llegan desde Main)
+        };
+    }
+
+    /** Equivale a que "<Operacion=" + s + ">" cumpla OPEN_OP con grupo s. */
+    private static boolean esNombreOp(String s) {
+        if (s.isEmpty()) return false;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (!((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || c == '_')) return false;
+        }
+        return true;
+    }
+
+    /** Equivale a NUMBER sobre un lexema sin espacios (lo que emite el Lexer). */
+    private static boolean esNumero(String s) {
+        int i = 0, n = s.length();
+        if (i < n && (s.charAt(i) == '+' || s.charAt(i) == '-')) i++;
+        int d = i;
+        while (i < n && s.charAt(i) >= '0' && s.charAt(i) <= '9') i++;
+        if (i == d) return false;
+        if (i == n) return true;
+        if (s.charAt(i++) != '.') return false;
+        d = i;
+        while (i < n && s.charAt(i) >= '0' && s.charAt(i) <= '9') i++;
+        return i > d && i == n;
     }
 
     /**
@@ -62,71 +273,100 @@ public class Parser {
         List<Node> ops = new ArrayList<>();
         while (!eof()) {
             // Ignora tokens vacíos o de espacio si tu lexer los generó (opcional)
-            if (isIgnorable(peek())) {
+            if (isIgnorable(pos)) {
                 next();
                 continue;
             }
-            ops.add(parseElemento());
+            revisarInterrupcion();
+            ops.add(parseElementoSuperior());
         }
         return ops;
     }
 
-    private Node parseValorSimple(Pattern open, Pattern close, String etiqueta) {
+    /**
+     * Entre Elemento y Elemento de nivel superior: si el hilo fue interrumpido
+     * (p. ej. Future.cancel(true) por tiempo agotado) se deja de parsear.
+     */
+    private static void revisarInterrupcion() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Análisis cancelado");
+        }
+    }
+
+    /** parseElemento() de nivel superior, con su evento JFR (app.eventos.ParseoElemento). */
+    private Node parseElementoSuperior() {
+        app.eventos.ParseoElemento evento = new app.eventos.ParseoElemento();
+        evento.begin();
+        int inicio = pos;
+        Node n = null;
+        try {
+            n = parseElemento();
+            return n;
+        } finally {
+            evento.end();
+            if (evento.shouldCommit()) {
+                evento.linea = linea(inicio);
+                evento.columna = columna(inicio);
+                evento.operacion = n instanceof ast.Op op ? op.getNombre()
+                        : clases[inicio] == Clase.ABRE_OP ? nombreOp(inicio) : texto(inicio);
+                evento.tokens = pos - inicio;
+                evento.ok = n != null;
+                evento.commit();
+            }
+        }
+    }
+
+    private Node parseValorSimple(Clase open, Clase close, String etiqueta) {
         expect(open, "Se esperaba <" + etiqueta + ">");
-        String numLex = next().lexeme.trim();
-        if (!NUMBER.matcher(numLex).matches()) {
-            throw error("Se esperaba un número dentro de <" + etiqueta + "> pero vino '" + numLex + "'");
+        int num = next();
+        if (clases[num] != Clase.NUMERO) {
+            throw error("Se esperaba un número dentro de <" + etiqueta + "> pero vino '" + texto(num) + "'");
         }
-        double val = Double.parseDouble(numLex);
+        double val = Double.parseDouble(texto(num));
         expect(close, "Se esperaba </" + etiqueta + ">");
-        return new ast.Num(val);
+        return internar(new ast.Num(val));
     }
 
     private Node parseElemento() {
         if (eof()) {
             throw error("Se esperaba Elemento pero no hay más tokens");
         }
-        String lx = peek().lexeme.trim();
 
-        if (OPEN_NUM.matcher(lx).matches()) {
-            return parseNumero();                // <Numero> n </Numero>
-        }
-        if (OPEN_P.matcher(lx).matches()) {
-            return parseValorSimple(OPEN_P, CLOSE_P, "P"); // <P> n </P> → Num(n)
+        switch (clases[pos]) {
+            case ABRE_NUM:
+                return parseNumero();                // <Numero> n </Numero>
+            case ABRE_P:
+                return parseValorSimple(Clase.ABRE_P, Clase.CIERRA_P, "P"); // <P> n </P> → Num(n)
+            case ABRE_R:
+                return parseValorSimple(Clase.ABRE_R, Clase.CIERRA_R, "R"); // <R> n </R> → Num(n)
+            case ABRE_OP:
+                return parseOperacion(nombreOp(pos)); // <Operacion=NAME> ... </Operacion>
+            default:
+                throw error("Token inesperado como inicio de Elemento: '" + texto(pos) + "'");
         }
-        if (OPEN_R.matcher(lx).matches()) {
-            return parseValorSimple(OPEN_R, CLOSE_R, "R"); // <R> n </R> → Num(n)
-        }
-
-        java.util.regex.Matcher m = OPEN_OP.matcher(lx);
-        if (m.matches()) {
-            String nombre = m.group(1);
-            return parseOperacion(nombre);       // <Operacion=NAME> ... </Operacion>
-        }
-        throw error("Token inesperado como inicio de Elemento: '" + lx + "'");
     }
 
     private Node parseNumero() {
-        expect(OPEN_NUM, "Se esperaba <Numero>");
+        expect(Clase.ABRE_NUM, "Se esperaba <Numero>");
         // Se espera un token que sea un número (mismo o siguiente token, según tu lexer).
-        String numLex = next().lexeme.trim();
-        if (!NUMBER.matcher(numLex).matches()) {
-            throw error("Se esperaba un número dentro de <Numero> pero vino '" + numLex + "'");
+        int num = next();
+        if (clases[num] != Clase.NUMERO) {
+            throw error("Se esperaba un número dentro de <Numero> pero vino '" + texto(num) + "'");
         }
-        double val = Double.parseDouble(numLex);
-        expect(CLOSE_NUM, "Se esperaba </Numero>");
-        return new Num(val);
+        double val = Double.parseDouble(texto(num));
+        expect(Clase.CIERRA_NUM, "Se esperaba </Numero>");
+        return internar(new Num(val));
     }
 
     private Node parseOperacion(String nombre) {
         // Ya vimos <Operacion=NAME> fuera, consumimos ese token:
-        expect(OPEN_OP, "Se esperaba <Operacion=...>"); // el actual debe coincidir con la misma forma
+        expect(Clase.ABRE_OP, "Se esperaba <Operacion=...>"); // el actual debe coincidir con la misma forma
         Op op = OperacionFactory.of(nombre);
 
         // Debe haber al menos 1 hijo; en la guía usualmente >=2 para binarias (salvo unarias)
         // Aquí permitimos Elemento+ y la operación validará aridad en evaluate().
-        while (!eof() && !test(CLOSE_OP)) {
-            if (isIgnorable(peek())) {
+        while (!eof() && !test(Clase.CIERRA_OP)) {
+            if (isIgnorable(pos)) {
                 next();
                 continue;
             }
@@ -134,54 +374,76 @@ public class Parser {
             op.add(child);
         }
 
-        expect(CLOSE_OP, "Se esperaba </Operacion>");
-        return op;
+        expect(Clase.CIERRA_OP, "Se esperaba </Operacion>");
+        return internar(op);
     }
 
     // ==== utilidades del cursor ====
     private boolean eof() {
-        return pos >= tokens.size();
-    }
-
-    private Token peek() {
-        return tokens.get(pos);
+        return pos >= clases.length;
     }
 
-    private Token next() {
-        return tokens.get(pos++);
+    /** Consume el token actual y devuelve su índice (falla como List.get si no hay más). */
+    private int next() {
+        return Objects.checkIndex(pos++, clases.length);
     }
 
-    private boolean test(Pattern p) {
+    private boolean test(Clase c) {
         if (eof()) {
             return false;
         }
-        return p.matcher(peek().lexeme.trim()).matches();
+        return clases[pos] == c;
     }
 
-    private void expect(Pattern p, String msg) {
+    private void expect(Clase c, String msg) {
         if (eof()) {
             throw error(msg + " pero no hay más tokens");
         }
-        String lx = peek().lexeme.trim();
-        if (!p.matcher(lx).matches()) {
-            throw error(msg + ". Encontrado: '" + lx + "'");
+        if (clases[pos] != c) {
+            throw error(msg + ". Encontrado: '" + texto(pos) + "'");
         }
         next();
     }
 
-    private boolean isIgnorable(Token t) {
-        if (t == null) {
-            return true;
-        }
-        String lx = t.lexeme;
+    private boolean isIgnorable(int i) {
         // si tu lexer emite saltos de línea/espacios como tokens, ignóralos
-        return lx.isBlank();
+        return clases[i] == Clase.IGNORABLE;
+    }
+
+    /** Texto del token tal como lo ve la ruta clásica (solo para mensajes y números). */
+    private String texto(int i) {
+        if (fuente != null) {
+            lexer.TokenType tipo = fuente.tipo(i);
+            String lexema = fuente.lexema(i);
+            return tipo == lexer.TokenType.NUMERO ? lexema.trim() : ParserAdapter.lexema(tipo, lexema).trim();
+        }
+        return tokens.get(i).lexeme.trim();
+    }
+
+    private String nombreOp(int i) {
+        if (fuente != null) {
+            String lexema = fuente.lexema(i);
+            if (esNombreOp(lexema)) {
+                return lexema;
+            }
+        }
+        Matcher m = OPEN_OP.matcher(texto(i));
+        m.matches();
+        return m.group(1);
+    }
+
+    private int linea(int i) {
+        return fuente != null ? fuente.linea(i) : tokens.get(i).line;
+    }
+
+    private int columna(int i) {
+        return fuente != null ? fuente.columna(i) : tokens.get(i).column;
     }
 
     private ParseException error(String msg) {
-        int l = eof() ? (tokens.isEmpty() ? 1 : tokens.get(tokens.size() - 1).line) : peek().line;
-        int c = eof() ? (tokens.isEmpty() ? 1 : tokens.get(tokens.size() - 1).column) : peek().column;
-        return new ParseException("[línea " + l + ", col " + c + "] " + msg);
+        int l = eof() ? (clases.length == 0 ? 1 : linea(clases.length - 1)) : linea(pos);
+        int c = eof() ? (clases.length == 0 ? 1 : columna(clases.length - 1)) : columna(pos);
+        return new ParseException(l, c, msg);
     }
     // === NUEVO: POJO de error sintáctico
 
@@ -190,11 +452,17 @@ public class Parser {
 
         public final int line, col;
         public final String msg;
+        public final ParseException causa; // null en los errores de tope
 
         public ParseErrorInfo(int line, int col, String msg) {
+            this(line, col, msg, null);
+        }
+
+        public ParseErrorInfo(int line, int col, String msg, ParseException causa) {
             this.line = line;
             this.col = col;
             this.msg = msg;
+            this.causa = causa;
         }
 
         @Override
@@ -209,6 +477,18 @@ public class Parser {
         return errores;
     }
 
+    // Primer error tal como lo habría lanzado parsePrograma() (modo no tolerante)
+    private ParseException primerError;
+
+    /**
+     * Tras parseBatchTolerante(): la excepción con la que parsePrograma() se
+     * habría detenido sobre los mismos tokens, o null si no hubo errores.
+     * Permite derivar el reporte no tolerante sin volver a parsear.
+     */
+    public ParseException getPrimerError() {
+        return primerError;
+    }
+
     /**
      * Parsea tantas expresiones (Elemento) como encuentre SIN abortar todo el
      * archivo. Acumula errores y continúa (panic-mode).
@@ -219,88 +499,113 @@ public class Parser {
      */
     public java.util.List<ast.Node> parseBatchTolerante() {
         java.util.List<ast.Node> nodos = new java.util.ArrayList<>();
+        parseBatchTolerante(nodos::add);
+        return nodos;
+    }
 
+    /**
+     * Igual que parseBatchTolerante(), pero entrega cada AST de nivel superior
+     * a 'destino' apenas se completa (p. ej. para pasarlo a una ast.Arena sin
+     * tener todo el bosque como objetos).
+     */
+    public void parseBatchTolerante(java.util.function.Consumer<ast.Node> destino) {
         while (!eof()) {
-            // Saltar ignorable
-            if (isIgnorable(peek())) {
-                next();
-                continue;
-            }
+            pasoTolerante(destino);
+        }
+    }
+
+    /** Índice del próximo token a consumir. */
+    public int posicion() {
+        return pos;
+    }
 
-            String lx = peek().lexeme.trim();
+    /**
+     * Una vuelta del ciclo de parseBatchTolerante(): un Elemento de nivel
+     * superior, un error de tope o un token ignorable. Permite parsear el
+     * documento por tramos (app.AnalisisIncremental). Si el hilo fue
+     * interrumpido lanza CancellationException antes de avanzar.
+     */
+    public void pasoTolerante(java.util.function.Consumer<ast.Node> destino) {
+        revisarInterrupcion();
+        // Saltar ignorable
+        if (isIgnorable(pos)) {
+            next();
+            return;
+        }
 
+        switch (clases[pos]) {
             // Caso 1: inicio válido de Operacion: <Operacion=NAME>
-            java.util.regex.Matcher m = OPEN_OP.matcher(lx);
-            if (m.matches()) {
-                String nombre = m.group(1);
+            // Caso 2: inicio válido de Numero/P/R -> son Elementos válidos independientes
+            case ABRE_OP, ABRE_NUM, ABRE_P, ABRE_R -> {
                 try {
-                    // IMPORTANTE: parseOperacion consume el mismo OPEN_OP que estamos viendo
-                    ast.Node n = parseOperacion(nombre);
+                    // IMPORTANTE: parseElemento consume el mismo token de apertura que estamos viendo
+                    ast.Node n = parseElementoSuperior();
                     if (n != null) {
-                        nodos.add(n);
+                        destino.accept(n);
                     }
                 } catch (ParseException ex) {
                     // Registrar y recuperar
-                    int ln = peekPosLine(), co = peekPosCol();
-                    errores.add(new ParseErrorInfo(ln, co, ex.getMessage()));
-                    sincronizarAProximoInicio();
-                }
-                continue;
-            }
-
-            // Caso 2: inicio válido de Numero/P/R -> son Elementos válidos independientes
-            if (OPEN_NUM.matcher(lx).matches() || OPEN_P.matcher(lx).matches() || OPEN_R.matcher(lx).matches()) {
-                try {
-                    ast.Node n = parseElemento();
-                    if (n != null) {
-                        nodos.add(n);
+                    if (primerError == null) {
+                        primerError = ex;
                     }
-                } catch (ParseException ex) {
                     int ln = peekPosLine(), co = peekPosCol();
-                    errores.add(new ParseErrorInfo(ln, co, ex.getMessage()));
-                    sincronizarAProximoInicio();
+                    errores.add(new ParseErrorInfo(ln, co, ex.getMessage(), ex));
+                    sincronizarAProximoInicio(ex.getMessage());
                 }
-                continue;
             }
 
             // Caso 3: cierre suelto (</Operacion> o </Numero> / </P> / </R>) en tope de documento
-            if (CLOSE_OP.matcher(lx).matches() || CLOSE_NUM.matcher(lx).matches()
-                    || CLOSE_P.matcher(lx).matches() || CLOSE_R.matcher(lx).matches()) {
+            case CIERRA_OP, CIERRA_NUM, CIERRA_P, CIERRA_R -> {
                 // Error: cierre sin apertura en este nivel
-                errores.add(new ParseErrorInfo(peek().line, peek().column,
-                        "Cierre inesperado en tope: '" + lx + "'"));
+                anotarInicioInesperado();
+                errores.add(new ParseErrorInfo(linea(pos), columna(pos),
+                        "Cierre inesperado en tope: '" + texto(pos) + "'"));
                 next(); // consumir el cierre para no ciclar
-                continue;
             }
 
             // Caso 4: cualquier otra basura en tope
-            errores.add(new ParseErrorInfo(peek().line, peek().column,
-                    "Token inesperado como inicio de Elemento: '" + lx + "'"));
-            next(); // descartar y seguir
+            default -> {
+                anotarInicioInesperado();
+                errores.add(new ParseErrorInfo(linea(pos), columna(pos),
+                        "Token inesperado como inicio de Elemento: '" + texto(pos) + "'"));
+                next(); // descartar y seguir
+            }
         }
+    }
 
-        return nodos;
+    /** Devuelve el primer error anotado hasta ahora y lo olvida (el siguiente error pasa a ser el primero). */
+    public ParseException retirarPrimerError() {
+        ParseException e = primerError;
+        primerError = null;
+        return e;
+    }
+
+    // parsePrograma() habría fallado aquí dentro de parseElemento()
+    private void anotarInicioInesperado() {
+        if (primerError == null) {
+            primerError = error("Token inesperado como inicio de Elemento: '" + texto(pos) + "'");
+        }
     }
 
 // Posición segura para reportes cuando estamos en o cerca de EOF
     private int peekPosLine() {
         if (eof()) {
-            if (tokens.isEmpty()) {
+            if (clases.length == 0) {
                 return 1;
             }
-            return tokens.get(tokens.size() - 1).line;
+            return linea(clases.length - 1);
         }
-        return peek().line;
+        return linea(pos);
     }
 
     private int peekPosCol() {
         if (eof()) {
-            if (tokens.isEmpty()) {
+            if (clases.length == 0) {
                 return 1;
             }
-            return tokens.get(tokens.size() - 1).column;
+            return columna(clases.length - 1);
         }
-        return peek().column;
+        return columna(pos);
     }
 
     /**
@@ -308,15 +613,25 @@ public class Parser {
      * <P>
      * , <R>) o EOF.
      */
-    private void sincronizarAProximoInicio() {
+    private void sincronizarAProximoInicio(String motivo) {
+        app.eventos.RecuperacionParseo evento = new app.eventos.RecuperacionParseo();
+        evento.begin();
+        int inicio = pos;
         while (!eof()) {
-            String lx = peek().lexeme.trim();
-            if (OPEN_OP.matcher(lx).matches() || OPEN_NUM.matcher(lx).matches()
-                    || OPEN_P.matcher(lx).matches() || OPEN_R.matcher(lx).matches()) {
+            Clase c = clases[pos];
+            if (c == Clase.ABRE_OP || c == Clase.ABRE_NUM || c == Clase.ABRE_P || c == Clase.ABRE_R) {
                 break; // punto seguro
             }
             // En recuperación: consumir TODO, incluyendo cierres/ruido
             next();
         }
+        evento.end();
+        if (evento.shouldCommit()) {
+            evento.linea = inicio < clases.length ? linea(inicio) : peekPosLine();
+            evento.columna = inicio < clases.length ? columna(inicio) : peekPosCol();
+            evento.descartados = pos - inicio;
+            evento.motivo = motivo;
+            evento.commit();
+        }
     }
 }
@@ -15,39 +15,42 @@ public final class ParserAdapter {
         List<Parser.Token> out = new ArrayList<>(userTokens.size());
 
         for (Token t : userTokens) {
-            String lx = t.lexeme;
-
-            switch (t.type) {
-                // === Operación ===
-                case ABRIROPERACION -> {
-                    // Ej: lexeme = SUMA | RESTA | DIVISION ...
-                    lx = "<Operacion=" + t.lexeme + ">";
-                }
-                case CERRAROPERACION -> lx = "</Operacion>";
-
-                // === Número ===
-                case ABRIRONUMERO -> lx = "<Numero>";
-                case CERRARNUMERO -> lx = "</Numero>";
-
-                // === P y R ===
-                case ABRIRO_P -> lx = "<P>";
-                case CERRAR_P -> lx = "</P>";
-                case ABRIRO_R -> lx = "<R>";
-                case CERRAR_R -> lx = "</R>";
-
-                // === Número literal ===
-                case NUMERO -> lx = t.lexeme;
-
-                // === Ignorables ===
-                case ESPACIO -> lx = ""; // ignoramos espacios
-
-                // === Otros casos: mantenemos el lexema como está ===
-                default -> lx = t.lexeme;
-            }
-
-            out.add(new Parser.Token(lx, t.line, t.column));
+            out.add(new Parser.Token(lexema(t), t.line, t.column));
         }
 
         return out;
     }
+
+    /**
+     * Texto que el Parser clásico ve para un token. La ruta tipada
+     * (Parser.deLexer) solo lo arma para mensajes de error.
+     */
+    public static String lexema(Token t) {
+        return lexema(t.type, t.lexeme);
+    }
+
+    /** Igual, a partir del tipo y el lexema (p. ej. leídos de un lexer.BufferTokens). */
+    public static String lexema(lexer.TokenType tipo, String lexeme) {
+        return switch (tipo) {
+            // === Operación ===
+            case ABRIROPERACION -> "<Operacion=" + lexeme + ">"; // lexeme = SUMA | RESTA | DIVISION ...
+            case CERRAROPERACION -> "</Operacion>";
+
+            // === Número ===
+            case ABRIRONUMERO -> "<Numero>";
+            case CERRARNUMERO -> "</Numero>";
+
+            // === P y R ===
+            case ABRIRO_P -> "<P>";
+            case CERRAR_P -> "</P>";
+            case ABRIRO_R -> "<R>";
+            case CERRAR_R -> "</R>";
+
+            // === Ignorables ===
+            case ESPACIO -> ""; // ignoramos espacios
+
+            // === Número literal y otros casos: mantenemos el lexema como está ===
+            default -> lexeme;
+        };
+    }
 }
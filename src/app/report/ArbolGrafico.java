@@ -3,35 +3,56 @@ package app.report;
 import ast.Node;
 import ast.Op;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 
 /**
  * Genera .dot y (si hay Graphviz) .png para un AST.
+ *
+ * Es el backend opcional (-Dlfa.arboles=graphviz): por defecto los árboles
+ * se dibujan en Java con ArbolSvg y van dentro de Resultados.html, sin lanzar
+ * un proceso 'dot' por árbol.
+ *
+ * Cada invocación de dot deja su salida en graphviz_error.txt, en la carpeta
+ * del .dot (así cada documento de un lote tiene el suyo).
  */
 public final class ArbolGrafico {
 
+    /** Propiedad de sistema: "svg" (por defecto, ArbolSvg en el HTML) o "graphviz" (arbol_#.dot/.png). */
+    public static final String PROPIEDAD = "lfa.arboles";
+
     private ArbolGrafico() {
     }
 
+    /** Inicio de cada .dot (estilo de los diagramas; CacheDiagramas lo incluye en la clave). */
+    static final String ENCABEZADO = "digraph G {\n"
+            + "  rankdir=TB;\n"
+            + "  node [shape=box, style=rounded, fontname=\"Segoe UI\", fontsize=11];\n";
+
+    /** true si -Dlfa.arboles=graphviz: generar arbol_#.dot/.png con el 'dot' externo. */
+    public static boolean usarGraphviz() {
+        String modo = System.getProperty(PROPIEDAD, "svg").trim().toLowerCase();
+        return switch (modo) {
+            case "svg" -> false;
+            case "graphviz" -> true;
+            default -> throw new IllegalArgumentException("Backend de árboles desconocido: " + modo + " (use svg | graphviz)");
+        };
+    }
+
     public static void generarDot(Node raiz, Path destinoDot) throws IOException {
-        StringBuilder sb = new StringBuilder();
-        sb.append("digraph G {\n")
-                .append("  rankdir=TB;\n")
-                .append("  node [shape=box, style=rounded, fontname=\"Segoe UI\", fontsize=11];\n");
-
-        // recorrido DFS con ids incrementales
-        int[] id = {1};
-        escribirNodo(raiz, -1, sb, id);
-
-        sb.append("}\n");
-        Files.createDirectories(destinoDot.getParent());
-        Files.writeString(destinoDot, sb.toString(), StandardCharsets.UTF_8);
+        try (EscritorTexto w = EscritorTexto.abrir(destinoDot)) {
+            w.texto(ENCABEZADO);
+
+            // recorrido DFS con ids incrementales
+            int[] id = {1};
+            escribirNodo(raiz, -1, w, id);
+
+            w.texto("}\n");
+        }
     }
 
     public static boolean dotAPng(java.nio.file.Path archivoDot, java.nio.file.Path destinoPng) {
         try {
-            String dotExe = findDotExecutable(); // ruta completa o "dot"
+            String dotExe = Dot.EJECUTABLE; // ruta completa o "dot"
             // 1) Intento PNG
             int exit = runDot(dotExe, "-Tpng", archivoDot, destinoPng);
             if (exit == 0 && java.nio.file.Files.exists(destinoPng)) {
@@ -51,7 +72,7 @@ public final class ArbolGrafico {
         } catch (Exception e) {
             try {
                 java.nio.file.Files.writeString(
-                        java.nio.file.Path.of("out", "graphviz_error.txt"),
+                        registroDot(archivoDot),
                         "[JAVA] Excepción al invocar dot: " + e + System.lineSeparator(),
                         java.nio.charset.StandardCharsets.UTF_8,
                         java.nio.file.StandardOpenOption.CREATE,
@@ -67,22 +88,52 @@ public final class ArbolGrafico {
     private static int runDot(String dotExe, String formatFlag,
             java.nio.file.Path srcDot, java.nio.file.Path outFile) throws Exception {
         java.nio.file.Files.createDirectories(outFile.getParent());
-        Process p = new ProcessBuilder(
-                dotExe, formatFlag,
-                srcDot.toAbsolutePath().toString(),
-                "-o", outFile.toAbsolutePath().toString()
-        )
-                .redirectErrorStream(true) // mezcla stderr en stdout
-                .start();
-
-        // Capturar salida para diagnóstico
-        byte[] outBytes = p.getInputStream().readAllBytes();
-        int exit = p.waitFor();
+        app.eventos.InvocacionDot evento = new app.eventos.InvocacionDot();
+        evento.ejecutable = dotExe;
+        evento.formato = formatFlag;
+        evento.archivo = srcDot.toString();
+        evento.codigoSalida = -1;
+        evento.begin();
+        try {
+            int exit = ejecutarDot(dotExe, formatFlag, srcDot, outFile);
+            evento.codigoSalida = exit;
+            return exit;
+        } finally {
+            evento.commit();
+        }
+    }
+
+    private static int ejecutarDot(String dotExe, String formatFlag,
+            java.nio.file.Path srcDot, java.nio.file.Path outFile) throws Exception {
+        // La salida va a un archivo y no a un pipe: leer el pipe bloquea sin ver
+        // interrupciones, waitFor() sí las ve
+        java.nio.file.Path salida = java.nio.file.Files.createTempFile("dot", ".log");
+        String log;
+        int exit;
+        try {
+            Process p = new ProcessBuilder(
+                    dotExe, formatFlag,
+                    srcDot.toAbsolutePath().toString(),
+                    "-o", outFile.toAbsolutePath().toString()
+            )
+                    .redirectErrorStream(true) // mezcla stderr en stdout
+                    .redirectOutput(salida.toFile())
+                    .start();
+            try {
+                exit = p.waitFor();
+            } catch (InterruptedException e) {
+                p.destroyForcibly(); // análisis cancelado: no dejar el dot corriendo
+                Thread.currentThread().interrupt();
+                throw e;
+            }
+            log = new String(java.nio.file.Files.readAllBytes(salida), java.nio.charset.StandardCharsets.UTF_8);
+        } finally {
+            java.nio.file.Files.deleteIfExists(salida);
+        }
 
         // Log detallado
-        String log = new String(outBytes, java.nio.charset.StandardCharsets.UTF_8);
         java.nio.file.Files.writeString(
-                java.nio.file.Path.of("out", "graphviz_error.txt"),
+                registroDot(srcDot),
                 "[DOT] exe=" + dotExe + " exit=" + exit + " format=" + formatFlag
                 + "\nDOT=" + srcDot.toAbsolutePath()
                 + "\nOUT=" + outFile.toAbsolutePath()
@@ -94,6 +145,16 @@ public final class ArbolGrafico {
         return exit;
     }
 
+    /** graphviz_error.txt junto al .dot que se está dibujando. */
+    private static java.nio.file.Path registroDot(java.nio.file.Path dot) {
+        return dot.toAbsolutePath().resolveSibling("graphviz_error.txt");
+    }
+
+    /** Ruta de 'dot', buscada una sola vez (en Windows 'where dot' lanza un proceso). */
+    private static final class Dot {
+        static final String EJECUTABLE = findDotExecutable();
+    }
+
     /**
      * Intenta localizar dot.exe de forma robusta en Windows; si no, devuelve
      * "dot".
@@ -134,7 +195,7 @@ public final class ArbolGrafico {
         }
     }
 
-    private static int escribirNodo(Node n, int padreId, StringBuilder sb, int[] id) {
+    private static int escribirNodo(Node n, int padreId, EscritorTexto w, int[] id) throws IOException {
         int myId = id[0]++;
         String etiqueta;
         if (n instanceof Op op) {
@@ -142,19 +203,15 @@ public final class ArbolGrafico {
         } else {
             etiqueta = n.render(); // para Num u otros
         }
-        sb.append("  n").append(myId).append(" [label=\"").append(esc(etiqueta)).append("\"];\n");
+        w.texto("  n").texto(myId).texto(" [label=\"").dot(etiqueta).texto("\"];\n");
         if (padreId >= 0) {
-            sb.append("  n").append(padreId).append(" -> n").append(myId).append(";\n");
+            w.texto("  n").texto(padreId).texto(" -> n").texto(myId).texto(";\n");
         }
         if (n instanceof Op op) {
             for (Node h : op.getHijos()) {
-                escribirNodo(h, myId, sb, id);
+                escribirNodo(h, myId, w, id);
             }
         }
         return myId;
     }
-
-    private static String esc(String s) {
-        return s.replace("\\", "\\\\").replace("\"", "\\\"");
-    }
 }
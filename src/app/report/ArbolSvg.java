@@ -0,0 +1,230 @@
+package app.report;
+
+import ast.Node;
+import ast.Op;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Dibuja un AST como SVG sin procesos externos. La disposición es la de
+ * Reingold–Tilford (con las mejoras de Walker/Buchheim para que sea lineal):
+ * cada subárbol se arma por separado, se acerca a su hermano izquierdo hasta
+ * que los contornos quedan a SEPARACION y el padre va centrado sobre sus
+ * hijos. Las cajas tienen el ancho de su etiqueta, así que la distancia entre
+ * vecinos depende de ambos anchos.
+ *
+ * Las etiquetas son las mismas que en ArbolGrafico (nombre de la operación o
+ * el número).
+ */
+public final class ArbolSvg {
+
+    private static final double ALTO_CAJA = 24, ENTRE_NIVELES = 44, SEPARACION = 12, MARGEN = 8;
+    private static final double ANCHO_LETRA = 6.6, RELLENO = 16; // aproximación para font-size 11
+
+    private ArbolSvg() {
+    }
+
+    /** Nodo de la disposición (campos del algoritmo de Buchheim et al.). */
+    private static final class Caja {
+        final String etiqueta;
+        final double ancho;
+        final Caja padre;
+        final int numero;                 // posición entre sus hermanos (desde 1)
+        final List<Caja> hijos = new ArrayList<>();
+        double prelim, mod, cambio, corrimiento, x;
+        int nivel;
+        Caja hilo, ancestro = this;
+
+        Caja(String etiqueta, Caja padre, int numero) {
+            this.etiqueta = etiqueta;
+            this.ancho = etiqueta.length() * ANCHO_LETRA + RELLENO;
+            this.padre = padre;
+            this.numero = numero;
+        }
+
+        Caja hermanoIzquierdo() {
+            return padre == null || numero == 1 ? null : padre.hijos.get(numero - 2);
+        }
+
+        Caja primerHermano() {
+            return padre == null ? this : padre.hijos.get(0);
+        }
+
+        Caja siguienteIzquierda() {
+            return hijos.isEmpty() ? hilo : hijos.get(0);
+        }
+
+        Caja siguienteDerecha() {
+            return hijos.isEmpty() ? hilo : hijos.get(hijos.size() - 1);
+        }
+    }
+
+    public static void generarSvg(Node raiz, Path destino) throws IOException {
+        if (destino.getParent() != null) Files.createDirectories(destino.getParent());
+        Files.writeString(destino, svg(raiz), StandardCharsets.UTF_8);
+    }
+
+    /** Documento SVG del árbol (sirve suelto o dentro de un HTML). */
+    public static String svg(Node raiz) {
+        Caja r = armar(raiz, null, 1, 0);
+        primerRecorrido(r);
+        List<Caja> todas = new ArrayList<>();
+        segundoRecorrido(r, -r.prelim, todas);
+
+        double min = Double.MAX_VALUE, max = -Double.MAX_VALUE;
+        int niveles = 0;
+        for (Caja c : todas) {
+            min = Math.min(min, c.x - c.ancho / 2);
+            max = Math.max(max, c.x + c.ancho / 2);
+            niveles = Math.max(niveles, c.nivel + 1);
+        }
+        double dx = MARGEN - min;
+        double ancho = max - min + 2 * MARGEN;
+        double alto = niveles * ALTO_CAJA + (niveles - 1) * ENTRE_NIVELES + 2 * MARGEN;
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(num(ancho))
+                .append("\" height=\"").append(num(alto)).append("\" viewBox=\"0 0 ").append(num(ancho))
+                .append(' ').append(num(alto))
+                .append("\" font-family=\"Segoe UI, Roboto, Arial, sans-serif\" font-size=\"11\">\n");
+        sb.append("<g stroke=\"#475569\" stroke-width=\"1.2\">\n");
+        for (Caja c : todas) {
+            for (Caja h : c.hijos) {
+                sb.append("<line x1=\"").append(num(c.x + dx)).append("\" y1=\"").append(num(y(c.nivel) + ALTO_CAJA))
+                        .append("\" x2=\"").append(num(h.x + dx)).append("\" y2=\"").append(num(y(h.nivel)))
+                        .append("\"/>\n");
+            }
+        }
+        sb.append("</g>\n<g>\n");
+        for (Caja c : todas) {
+            sb.append("<rect x=\"").append(num(c.x + dx - c.ancho / 2)).append("\" y=\"").append(num(y(c.nivel)))
+                    .append("\" width=\"").append(num(c.ancho)).append("\" height=\"").append(num(ALTO_CAJA))
+                    .append("\" rx=\"6\" fill=\"#0b1220\" stroke=\"").append(c.hijos.isEmpty() ? "#94a3b8" : "#38bdf8")
+                    .append("\"/>");
+            sb.append("<text x=\"").append(num(c.x + dx)).append("\" y=\"").append(num(y(c.nivel) + ALTO_CAJA / 2))
+                    .append("\" text-anchor=\"middle\" dominant-baseline=\"central\" fill=\"#e5e7eb\">")
+                    .append(esc(c.etiqueta)).append("</text>\n");
+        }
+        sb.append("</g>\n</svg>\n");
+        return sb.toString();
+    }
+
+    private static Caja armar(Node n, Caja padre, int numero, int nivel) {
+        Caja c = new Caja(n instanceof Op op ? op.getNombre() : n.render(), padre, numero);
+        c.nivel = nivel;
+        if (n instanceof Op op) {
+            List<Node> hs = op.getHijos();
+            for (int i = 0; i < hs.size(); i++) {
+                c.hijos.add(armar(hs.get(i), c, i + 1, nivel + 1));
+            }
+        }
+        return c;
+    }
+
+    private static double distancia(Caja a, Caja b) {
+        return (a.ancho + b.ancho) / 2 + SEPARACION;
+    }
+
+    private static void primerRecorrido(Caja v) {
+        Caja w = v.hermanoIzquierdo();
+        if (v.hijos.isEmpty()) {
+            v.prelim = w == null ? 0 : w.prelim + distancia(w, v);
+            return;
+        }
+        Caja ancestroPorDefecto = v.hijos.get(0);
+        for (Caja h : v.hijos) {
+            primerRecorrido(h);
+            ancestroPorDefecto = acomodar(h, ancestroPorDefecto);
+        }
+        aplicarCorrimientos(v);
+        double medio = (v.hijos.get(0).prelim + v.hijos.get(v.hijos.size() - 1).prelim) / 2;
+        if (w != null) {
+            v.prelim = w.prelim + distancia(w, v);
+            v.mod = v.prelim - medio;
+        } else {
+            v.prelim = medio;
+        }
+    }
+
+    /** Acerca el subárbol de v a los de sus hermanos izquierdos recorriendo los contornos. */
+    private static Caja acomodar(Caja v, Caja ancestroPorDefecto) {
+        Caja w = v.hermanoIzquierdo();
+        if (w == null) {
+            return ancestroPorDefecto;
+        }
+        Caja vip = v, vop = v, vim = w, vom = vip.primerHermano();
+        double sip = vip.mod, sop = vop.mod, sim = vim.mod, som = vom.mod;
+        while (vim.siguienteDerecha() != null && vip.siguienteIzquierda() != null) {
+            vim = vim.siguienteDerecha();
+            vip = vip.siguienteIzquierda();
+            vom = vom.siguienteIzquierda();
+            vop = vop.siguienteDerecha();
+            vop.ancestro = v;
+            double corrimiento = (vim.prelim + sim) - (vip.prelim + sip) + distancia(vim, vip);
+            if (corrimiento > 0) {
+                moverSubarbol(vim.ancestro.padre == v.padre ? vim.ancestro : ancestroPorDefecto, v, corrimiento);
+                sip += corrimiento;
+                sop += corrimiento;
+            }
+            sim += vim.mod;
+            sip += vip.mod;
+            som += vom.mod;
+            sop += vop.mod;
+        }
+        if (vim.siguienteDerecha() != null && vop.siguienteDerecha() == null) {
+            vop.hilo = vim.siguienteDerecha();
+            vop.mod += sim - sop;
+        }
+        if (vip.siguienteIzquierda() != null && vom.siguienteIzquierda() == null) {
+            vom.hilo = vip.siguienteIzquierda();
+            vom.mod += sip - som;
+            ancestroPorDefecto = v;
+        }
+        return ancestroPorDefecto;
+    }
+
+    private static void moverSubarbol(Caja wm, Caja wp, double corrimiento) {
+        int subarboles = wp.numero - wm.numero;
+        wp.cambio -= corrimiento / subarboles;
+        wp.corrimiento += corrimiento;
+        wm.cambio += corrimiento / subarboles;
+        wp.prelim += corrimiento;
+        wp.mod += corrimiento;
+    }
+
+    private static void aplicarCorrimientos(Caja v) {
+        double corrimiento = 0, cambio = 0;
+        for (int i = v.hijos.size() - 1; i >= 0; i--) {
+            Caja w = v.hijos.get(i);
+            w.prelim += corrimiento;
+            w.mod += corrimiento;
+            cambio += w.cambio;
+            corrimiento += w.corrimiento + cambio;
+        }
+    }
+
+    private static void segundoRecorrido(Caja v, double m, List<Caja> todas) {
+        v.x = v.prelim + m;
+        todas.add(v);
+        for (Caja h : v.hijos) {
+            segundoRecorrido(h, m + v.mod, todas);
+        }
+    }
+
+    private static double y(int nivel) {
+        return MARGEN + nivel * (ALTO_CAJA + ENTRE_NIVELES);
+    }
+
+    private static String num(double v) {
+        long d = Math.round(v * 10);
+        return d % 10 == 0 ? String.valueOf(d / 10) : String.valueOf(d / 10.0);
+    }
+
+    private static String esc(String s) {
+        return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+}
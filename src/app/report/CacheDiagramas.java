@@ -0,0 +1,212 @@
+package app.report;
+
+import ast.Node;
+import ast.Op;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cache en disco de los diagramas de Graphviz, direccionada por contenido:
+ * la clave es un SHA-256 de la estructura del árbol (etiquetas y aridades en
+ * preorden, las mismas que van al .dot) junto con el estilo del .dot. Un
+ * árbol que ya se dibujó en otra corrida (o más arriba en el mismo archivo)
+ * recibe su arbol_#.dot y arbol_#.png como enlace duro a la entrada de la
+ * cache (o copia si el sistema de archivos no los admite), sin volver a
+ * lanzar 'dot'.
+ *
+ * Tamaño acotado: en cada acierto se actualiza la fecha de la entrada y
+ * limpiar() borra las más viejas (LRU) hasta quedar bajo el tope.
+ *
+ * Activa por defecto con el backend graphviz, en out/cache_arboles con 256
+ * MB; -Dlfa.arboles.cache=DIR cambia la carpeta ("no" la desactiva) y
+ * -Dlfa.arboles.cache.mb=N el tope.
+ *
+ * dibujar() se puede llamar desde varios hilos (modo lote); limpiar() va al
+ * final, cuando nadie más la usa.
+ */
+public final class CacheDiagramas {
+
+    /** Propiedad de sistema con la carpeta de la cache ("no" = sin cache). */
+    public static final String PROPIEDAD_DIR = "lfa.arboles.cache";
+    /** Propiedad de sistema con el tope en MB (por defecto 256). */
+    public static final String PROPIEDAD_MB = "lfa.arboles.cache.mb";
+
+    // Cambiarla invalida todas las entradas (p. ej. si cambia cómo se arma el .dot)
+    private static final String VERSION = "graphviz-1";
+    private static final String[] IMAGENES = {".png", ".svg"}; // dotAPng cae a SVG si falla el PNG
+
+    private final Path dir;
+    private final long maxBytes;
+    private final AtomicInteger aciertos = new AtomicInteger(), fallos = new AtomicInteger();
+
+    public CacheDiagramas(Path dir, long maxBytes) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+    }
+
+    /** Cache según las propiedades de sistema, o null si está desactivada. */
+    public static CacheDiagramas configurada() {
+        String d = System.getProperty(PROPIEDAD_DIR, Path.of("out", "cache_arboles").toString()).trim();
+        if (d.isEmpty() || d.equalsIgnoreCase("no")) {
+            return null;
+        }
+        long mb;
+        try {
+            mb = Long.parseLong(System.getProperty(PROPIEDAD_MB, "256").trim());
+        } catch (NumberFormatException e) {
+            mb = 256;
+        }
+        return new CacheDiagramas(Path.of(d), mb << 20);
+    }
+
+    /**
+     * Deja en 'dot' y 'png' el diagrama de 'raiz' (o el .svg junto a 'png' si
+     * Graphviz solo pudo hacer SVG), desde la cache si ya estaba. Devuelve lo
+     * mismo que ArbolGrafico.dotAPng.
+     */
+    public boolean dibujar(Node raiz, Path dot, Path png) throws IOException {
+        String clave = clave(raiz);
+        Path dotCache = dir.resolve(clave + ".dot");
+        for (String ext : IMAGENES) {
+            Path imgCache = dir.resolve(clave + ext);
+            if (Files.exists(imgCache) && Files.exists(dotCache)) {
+                aciertos.incrementAndGet();
+                FileTime ahora = FileTime.fromMillis(System.currentTimeMillis());
+                Files.setLastModifiedTime(imgCache, ahora);
+                Files.setLastModifiedTime(dotCache, ahora);
+                Path img = conExtension(png, ext);
+                if (Files.exists(img) && Files.exists(dot) && Files.isSameFile(img, imgCache) && Files.isSameFile(dot, dotCache)) {
+                    return true; // sigue enlazado desde la corrida anterior
+                }
+                borrarDestinos(dot, png);
+                enlazar(dotCache, dot);
+                enlazar(imgCache, img);
+                return true;
+            }
+        }
+        fallos.incrementAndGet();
+
+        // Borrar antes de escribir: un destino enlazado a la cache no debe sobrescribirse en su lugar
+        borrarDestinos(dot, png);
+        ArbolGrafico.generarDot(raiz, dot);
+        boolean ok = ArbolGrafico.dotAPng(dot, png);
+        for (String ext : IMAGENES) {
+            Path img = conExtension(png, ext);
+            if (ok && Files.exists(img)) {
+                Files.createDirectories(dir);
+                guardar(img, dir.resolve(clave + ext));
+                guardar(dot, dotCache);
+                break;
+            }
+        }
+        return ok;
+    }
+
+    /** Borra las entradas usadas hace más tiempo hasta que la carpeta quede bajo el tope. */
+    public void limpiar() throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        List<Path> archivos = new ArrayList<>();
+        List<BasicFileAttributes> atributos = new ArrayList<>();
+        long total = 0;
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir)) {
+            for (Path p : ds) {
+                BasicFileAttributes a = Files.readAttributes(p, BasicFileAttributes.class);
+                if (a.isRegularFile()) {
+                    archivos.add(p);
+                    atributos.add(a);
+                    total += a.size();
+                }
+            }
+        }
+        if (total <= maxBytes) {
+            return;
+        }
+        Integer[] orden = new Integer[archivos.size()];
+        for (int i = 0; i < orden.length; i++) orden[i] = i;
+        Arrays.sort(orden, (x, y) -> atributos.get(x).lastModifiedTime().compareTo(atributos.get(y).lastModifiedTime()));
+        for (int i = 0; i < orden.length && total > maxBytes; i++) {
+            Files.deleteIfExists(archivos.get(orden[i]));
+            total -= atributos.get(orden[i]).size();
+        }
+    }
+
+    /** SHA-256 (en hex) de la estructura del árbol y el estilo del diagrama. */
+    static String clave(Node raiz) {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        md.update((VERSION + '\n' + ArbolGrafico.ENCABEZADO).getBytes(StandardCharsets.UTF_8));
+        digerir(raiz, md);
+        return HexFormat.of().formatHex(md.digest());
+    }
+
+    // Preorden: etiqueta (como en el .dot) y cantidad de hijos, con separadores
+    private static void digerir(Node n, MessageDigest md) {
+        if (n instanceof Op op) {
+            List<Node> hs = op.getHijos();
+            md.update((op.getNombre() + '\u0000' + hs.size() + '\u0001').getBytes(StandardCharsets.UTF_8));
+            for (Node h : hs) {
+                digerir(h, md);
+            }
+        } else {
+            md.update((n.render() + '\u0000' + "0\u0001").getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void borrarDestinos(Path dot, Path png) throws IOException {
+        Files.deleteIfExists(dot);
+        for (String ext : IMAGENES) {
+            Files.deleteIfExists(conExtension(png, ext));
+        }
+    }
+
+    private static Path conExtension(Path png, String ext) {
+        return Path.of(png.toString().replaceAll("\\.png$", ext));
+    }
+
+    /** Copia 'origen' (recién generado) a la cache como enlace duro, o copia. */
+    private static void guardar(Path origen, Path entrada) throws IOException {
+        // Nombre temporal propio del hilo: en modo lote varios archivos pueden guardar la misma clave a la vez
+        Path tmp = entrada.resolveSibling(entrada.getFileName() + "." + ProcessHandle.current().pid()
+                + "-" + Thread.currentThread().getId() + ".tmp");
+        Files.deleteIfExists(tmp);
+        try {
+            Files.createLink(tmp, origen);
+        } catch (IOException | UnsupportedOperationException e) {
+            Files.copy(origen, tmp);
+        }
+        Files.move(tmp, entrada, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void enlazar(Path entrada, Path destino) throws IOException {
+        if (destino.getParent() != null) Files.createDirectories(destino.getParent());
+        try {
+            Files.createLink(destino, entrada);
+        } catch (IOException | UnsupportedOperationException e) {
+            Files.copy(entrada, destino);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CacheDiagramas[" + dir + ", aciertos=" + aciertos + ", fallos=" + fallos + "]";
+    }
+}
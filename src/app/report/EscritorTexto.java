@@ -0,0 +1,160 @@
+package app.report;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Salida UTF-8 con búfer para los reportes (HTML y .dot): se escribe a
+ * medida que se recorren los resultados, así que la memoria no depende de
+ * cuántas operaciones haya. El escape se hace por tramos, directo al búfer,
+ * sin armar un String escapado por celda.
+ */
+final class EscritorTexto implements Closeable {
+
+    private static final int BUFER = 1 << 16;
+
+    private final Writer w;
+
+    private EscritorTexto(Writer w) {
+        this.w = w;
+    }
+
+    /** Crea (o reemplaza) 'destino', creando la carpeta si hace falta. */
+    static EscritorTexto abrir(Path destino) throws IOException {
+        if (destino.getParent() != null) Files.createDirectories(destino.getParent());
+        return new EscritorTexto(new BufferedWriter(
+                new OutputStreamWriter(Files.newOutputStream(destino), StandardCharsets.UTF_8), BUFER));
+    }
+
+    /** Sobre un flujo ya abierto (p. ej. con gzip); cerrar el escritor lo cierra. */
+    static EscritorTexto sobre(OutputStream salida) {
+        return sobre(salida, BUFER);
+    }
+
+    /** Igual, con un búfer de 'bufer' caracteres (respuestas chicas, p. ej. del servidor). */
+    static EscritorTexto sobre(OutputStream salida, int bufer) {
+        return new EscritorTexto(new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8), bufer));
+    }
+
+    EscritorTexto texto(String s) throws IOException {
+        w.write(s);
+        return this;
+    }
+
+    EscritorTexto texto(int n) throws IOException {
+        w.write(Integer.toString(n));
+        return this;
+    }
+
+    EscritorTexto texto(char c) throws IOException {
+        w.write(c);
+        return this;
+    }
+
+    /** Texto con &amp;, &lt; y &gt; escapados (null = nada), como HtmlReport.escape. */
+    EscritorTexto html(String s) throws IOException {
+        if (s == null) {
+            return this;
+        }
+        int desde = 0;
+        for (int i = 0; i < s.length(); i++) {
+            String rep = switch (s.charAt(i)) {
+                case '&' -> "&amp;";
+                case '<' -> "&lt;";
+                case '>' -> "&gt;";
+                default -> null;
+            };
+            if (rep != null) {
+                w.write(s, desde, i - desde);
+                w.write(rep);
+                desde = i + 1;
+            }
+        }
+        w.write(s, desde, s.length() - desde);
+        return this;
+    }
+
+    /** Texto para una cadena entre comillas de Graphviz (\ y " escapados). */
+    EscritorTexto dot(String s) throws IOException {
+        int desde = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\\' || c == '"') {
+                w.write(s, desde, i - desde);
+                w.write('\\');
+                w.write(c);
+                desde = i + 1;
+            }
+        }
+        w.write(s, desde, s.length() - desde);
+        return this;
+    }
+
+    /** Campo CSV (RFC 4180): entre comillas solo si tiene coma, comillas o saltos de línea. */
+    EscritorTexto csv(String s) throws IOException {
+        if (s == null) {
+            return this;
+        }
+        boolean comillas = false;
+        for (int i = 0; i < s.length() && !comillas; i++) {
+            char c = s.charAt(i);
+            comillas = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!comillas) {
+            w.write(s);
+            return this;
+        }
+        w.write('"');
+        int desde = 0;
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) == '"') {
+                w.write(s, desde, i + 1 - desde);
+                w.write('"');
+                desde = i + 1;
+            }
+        }
+        w.write(s, desde, s.length() - desde);
+        w.write('"');
+        return this;
+    }
+
+    /** Literal de cadena JSON/JavaScript entre comillas (null = null). */
+    EscritorTexto json(String s) throws IOException {
+        if (s == null) {
+            w.write("null");
+            return this;
+        }
+        w.write('"');
+        int desde = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\' || c < 0x20 || c == '\u2028' || c == '\u2029') {
+                w.write(s, desde, i - desde);
+                switch (c) {
+                    case '"' -> w.write("\\\"");
+                    case '\\' -> w.write("\\\\");
+                    case '\n' -> w.write("\\n");
+                    case '\r' -> w.write("\\r");
+                    case '\t' -> w.write("\\t");
+                    default -> w.write(String.format("\\u%04x", (int) c));
+                }
+                desde = i + 1;
+            }
+        }
+        w.write(s, desde, s.length() - desde);
+        w.write('"');
+        return this;
+    }
+
+    @Override
+    public void close() throws IOException {
+        w.close();
+    }
+}
@@ -1,7 +1,6 @@
 package app.report;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -9,9 +8,24 @@ import java.util.List;
 
 public final class HtmlReport {
 
+    /**
+     * Propiedad de sistema: filas por parte del Resultados.html paginado
+     * (generarPaginado). 0 o ausente = una sola página, como siempre.
+     */
+    public static final String PROPIEDAD_PAGINAS = "lfa.reporte.paginas";
+
     private HtmlReport() {
     }
 
+    /** Filas por parte según PROPIEDAD_PAGINAS (0 = sin paginar). */
+    public static int filasPorParte() {
+        try {
+            return Math.max(0, Integer.parseInt(System.getProperty(PROPIEDAD_PAGINAS, "0").trim()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
     private static String css() {
         return """
         <style>
@@ -38,50 +52,99 @@ public final class HtmlReport {
     public static void generarResultados(java.util.List<OperacionResultado> ops,
             java.util.List<ast.Node> arboles,
             java.nio.file.Path destinoHtml) throws java.io.IOException {
-        // --- tabla (igual que la versión actual) ---
-        StringBuilder rows = new StringBuilder();
-        for (OperacionResultado r : ops) {
-            String estado = r.ok ? "<span class='pill ok'>OK</span>" : "<span class='pill err'>ERROR</span>";
-            String valor = r.ok ? String.valueOf(r.valor) : "-";
-            String error = r.ok ? "" : ("<div class='mono' style='color:var(--err)'>" + escape(r.error) + "</div>");
-            rows.append("<tr>")
-                    .append("<td>").append(r.indice).append("</td>")
-                    .append("<td class='mono'>").append(escape(r.expresion)).append("</td>")
-                    .append("<td>").append(estado).append("</td>")
-                    .append("<td class='mono'>").append(valor).append("</td>")
-                    .append("<td>").append(error).append("</td>")
-                    .append("</tr>\n");
+        generarResultados(ops, arboles, destinoHtml, !ArbolGrafico.usarGraphviz());
+    }
+
+    /**
+     * Igual; con 'diagramasEnLinea' la galería lleva cada árbol como SVG
+     * (ArbolSvg) dentro del HTML en lugar de enlazar los arbol_#.png.
+     *
+     * Se escribe fila por fila con EscritorTexto: la memoria no crece con la
+     * cantidad de operaciones (ops y arboles se recorren sin copiarlos).
+     */
+    public static void generarResultados(java.util.List<OperacionResultado> ops,
+            java.util.List<ast.Node> arboles,
+            java.nio.file.Path destinoHtml, boolean diagramasEnLinea) throws java.io.IOException {
+        int porParte = filasPorParte();
+        if (porParte > 0) {
+            generarPaginado(ops, arboles, destinoHtml, diagramasEnLinea, porParte);
+            return;
         }
+        try (EscritorTexto w = EscritorTexto.abrir(destinoHtml)) {
+            w.texto("""
+    <!doctype html><html lang="es"><meta charset="utf-8"><title>Resultados</title>
+    %s
+    <body>
+      <div class="card">
+        <h1>Resultados de Operaciones</h1>
+        <div class="sub">Generado: %s</div>
+        <table>
+          <thead><tr>
+            <th>#</th><th>Expresión</th><th>Estado</th><th>Valor</th><th>Detalle</th>
+          </tr></thead>
+          <tbody>
+    """.formatted(css(), now()));
 
-        // --- lista infija bonita usando ASTs ---
-        StringBuilder infix = new StringBuilder();
-        infix.append("<ol style='padding-left:20px;'>");
-        for (int i = 0; i < arboles.size(); i++) {
-            var n = arboles.get(i);
-            String expr = InfixPretty.render(n);
-
-            // buscar el valor correspondiente (mismo índice i en ops)
-            String valor = "";
-            if (i < ops.size() && ops.get(i).ok) {
-                valor = " = <b>" + ops.get(i).valor + "</b>";
-            } else if (i < ops.size() && !ops.get(i).ok) {
-                valor = " → <b style='color:var(--err)'>" + escape(ops.get(i).error) + "</b>";
+            // --- tabla ---
+            for (OperacionResultado r : ops) {
+                w.texto("<tr>")
+                        .texto("<td>").texto(r.indice).texto("</td>")
+                        .texto("<td class='mono'>").html(r.expresion).texto("</td>")
+                        .texto("<td>").texto(r.ok ? "<span class='pill ok'>OK</span>" : "<span class='pill err'>ERROR</span>").texto("</td>")
+                        .texto("<td class='mono'>").texto(r.ok ? String.valueOf(r.valor) : "-").texto("</td>")
+                        .texto("<td>");
+                if (!r.ok) {
+                    w.texto("<div class='mono' style='color:var(--err)'>").html(r.error).texto("</div>");
+                }
+                w.texto("</td>").texto("</tr>\n");
             }
+            w.texto("""
 
-            infix.append("<li><div class='card' style='background:#0b1220'>")
-                    .append("<div class='mono'><b>").append(escape(expr)).append("</b>").append(valor).append("</div>")
-                    .append("</div></li>");
-        }
-        infix.append("</ol>");
-
-        // --- galería de diagramas ---
-        StringBuilder gal = new StringBuilder();
-        gal.append("<div class='sub'>Diagramas de Operaciones</div>")
-                .append("<div style='display:grid;grid-template-columns:repeat(auto-fill,minmax(220px,1fr));gap:12px;'>");
-        for (int i = 1; i <= arboles.size(); i++) {
-            java.nio.file.Path png = java.nio.file.Path.of("out", "arbol_" + i + ".png");
-            if (java.nio.file.Files.exists(png)) {
-                gal.append("""
+          </tbody>
+        </table>
+        <h2 style="margin-top:18px;">Operaciones (formato infijo)</h2>
+    """).texto("    ");
+
+            // --- lista infija bonita usando ASTs ---
+            w.texto("<ol style='padding-left:20px;'>");
+            for (int i = 0; i < arboles.size(); i++) {
+                w.texto("<li><div class='card' style='background:#0b1220'>")
+                        .texto("<div class='mono'><b>").html(InfixPretty.render(arboles.get(i))).texto("</b>");
+                // el valor correspondiente (mismo índice i en ops)
+                if (i < ops.size()) {
+                    OperacionResultado r = ops.get(i);
+                    if (r.ok) {
+                        w.texto(" = <b>").texto(String.valueOf(r.valor)).texto("</b>");
+                    } else {
+                        w.texto(" → <b style='color:var(--err)'>").html(r.error).texto("</b>");
+                    }
+                }
+                w.texto("</div>").texto("</div></li>");
+            }
+            w.texto("</ol>");
+            w.texto("""
+
+        <h2 style="margin-top:18px;">Diagramas de Operaciones</h2>
+    """).texto("    ");
+
+            // --- galería de diagramas ---
+            w.texto("<div class='sub'>Diagramas de Operaciones</div>")
+                    .texto("<div style='display:grid;grid-template-columns:repeat(auto-fill,minmax(220px,1fr));gap:12px;'>");
+            for (int i = 1; i <= arboles.size(); i++) {
+                if (diagramasEnLinea) {
+                    w.texto("""
+              <div class="card" style="padding:8px;">
+                <div class="sub" style="margin:0 0 8px 0;">arbol_%d</div>
+                <div style="overflow:auto;max-height:320px;background:#0b1220;border-radius:10px;">
+            """.formatted(i)).texto(ArbolSvg.svg(arboles.get(i - 1))).texto("""
+                </div>
+              </div>
+            """);
+                    continue;
+                }
+                java.nio.file.Path png = destinoHtml.resolveSibling("arbol_" + i + ".png");
+                if (java.nio.file.Files.exists(png)) {
+                    w.texto("""
               <a href="arbol_%d.png" target="_blank" style="text-decoration:none;">
                 <div class="card" style="padding:8px;">
                   <div class="sub" style="margin:0 0 8px 0;">arbol_%d.png</div>
@@ -89,49 +152,210 @@ public final class HtmlReport {
                 </div>
               </a>
             """.formatted(i, i, i, i));
+                }
             }
+            w.texto("</div>");
+
+            w.texto("""
+
+      </div>
+      <footer>Proyecto 2 · Analizador de Operaciones Aritméticas</footer>
+    </body></html>
+    """);
         }
-        gal.append("</div>");
+    }
 
-        String html = """
+    /**
+     * Resultados.html para documentos grandes: las filas van en partes de
+     * 'porParte' (Resultados_partes/parte_#.js, cada una llama a parte(k, filas))
+     * y la página trae solo el encabezado y un script que virtualiza la tabla:
+     * en el DOM están únicamente las filas visibles y las partes se cargan (y
+     * se sueltan) a medida que se desplaza. Son scripts y no fetch() para que
+     * funcione abriendo el archivo local.
+     *
+     * Cada fila es [#, expresión, ok, valor o error, infija, diagrama]; el
+     * diagrama es el SVG (diagramasEnLinea) o el nombre del arbol_#.png.
+     */
+    public static void generarPaginado(List<OperacionResultado> ops, List<ast.Node> arboles,
+            Path destinoHtml, boolean diagramasEnLinea, int porParte) throws IOException {
+        String base = destinoHtml.getFileName().toString().replaceAll("\\.html?$", "");
+        Path dirPartes = destinoHtml.resolveSibling(base + "_partes");
+        Files.createDirectories(dirPartes);
+        try (DirectoryStream<Path> viejas = Files.newDirectoryStream(dirPartes, "parte_*.js")) {
+            for (Path p : viejas) {
+                Files.delete(p);
+            }
+        }
+
+        int total = ops.size();
+        int partes = (int) (((long) total + porParte - 1) / porParte);
+        int conError = 0;
+        for (int k = 0; k < partes; k++) {
+            try (EscritorTexto w = EscritorTexto.abrir(dirPartes.resolve("parte_" + k + ".js"))) {
+                w.texto("parte(").texto(k).texto(",[\n");
+                int desde = k * porParte, hasta = (int) Math.min(total, (long) desde + porParte);
+                for (int i = desde; i < hasta; i++) {
+                    OperacionResultado r = ops.get(i);
+                    if (!r.ok) {
+                        conError++;
+                    }
+                    w.texto('[').texto(r.indice).texto(',').json(r.expresion).texto(r.ok ? ",1," : ",0,")
+                            .json(r.ok ? String.valueOf(r.valor) : r.error).texto(',');
+                    if (i < arboles.size()) {
+                        w.json(InfixPretty.render(arboles.get(i))).texto(',');
+                        Path png = destinoHtml.resolveSibling("arbol_" + (i + 1) + ".png");
+                        if (diagramasEnLinea) {
+                            w.json(ArbolSvg.svg(arboles.get(i)));
+                        } else {
+                            w.json(Files.exists(png) ? png.getFileName().toString() : null);
+                        }
+                    } else {
+                        w.texto("null,null");
+                    }
+                    w.texto(i + 1 < hasta ? "],\n" : "]\n");
+                }
+                w.texto("]);\n");
+            }
+        }
+
+        try (EscritorTexto w = EscritorTexto.abrir(destinoHtml)) {
+            w.texto("""
     <!doctype html><html lang="es"><meta charset="utf-8"><title>Resultados</title>
     %s
+    <style>
+    .virt { table-layout: fixed; margin: 0; }
+    .virt td { height: 36px; box-sizing: border-box; padding: 0 12px; white-space: nowrap; overflow: hidden; text-overflow: ellipsis; }
+    .virt tbody tr { cursor: pointer; }
+    #vista { height: 70vh; overflow: auto; }
+    #detalle { overflow: auto; max-height: 60vh; }
+    </style>
     <body>
       <div class="card">
         <h1>Resultados de Operaciones</h1>
-        <div class="sub">Generado: %s</div>
-        <table>
-          <thead><tr>
-            <th>#</th><th>Expresión</th><th>Estado</th><th>Valor</th><th>Detalle</th>
-          </tr></thead>
-          <tbody>
-    %s
-          </tbody>
-        </table>
-        <h2 style="margin-top:18px;">Operaciones (formato infijo)</h2>
-        %s
-        <h2 style="margin-top:18px;">Diagramas de Operaciones</h2>
-        %s
+        <div class="sub">Generado: %s · %d operaciones, %d con error · %d partes de %d filas</div>
+    """.formatted(css(), now(), total, conError, partes, porParte));
+            w.texto("""
+        <div class="sub"><label>Ir a la fila <input id="ir" type="number" min="1"></label></div>
+        <table class="virt">COLUMNAS<thead><tr>
+          <th>#</th><th>Expresión</th><th>Infija</th><th>Estado</th><th>Valor</th><th>Detalle</th>
+        </tr></thead></table>
+        <div id="vista"><div id="alto" style="position:relative;">
+          <table class="virt" id="filas" style="position:absolute;left:0;top:0;">COLUMNAS<tbody></tbody></table>
+        </div></div>
+        <h2 style="margin-top:18px;">Diagrama de la fila elegida</h2>
+        <div id="detalle" class="sub">Haga clic en una fila para ver su árbol.</div>
       </div>
       <footer>Proyecto 2 · Analizador de Operaciones Aritméticas</footer>
-    </body></html>
-    """.formatted(css(), now(), rows.toString(), infix.toString(), gal.toString());
+    """.replace("COLUMNAS", "<colgroup><col style='width:80px'><col><col><col style='width:90px'>"
+                    + "<col style='width:140px'><col></colgroup>"));
+            w.texto("<script>\nconst TOTAL = ").texto(total).texto(", POR_PARTE = ").texto(porParte)
+                    .texto(", EN_LINEA = ").texto(diagramasEnLinea ? "true" : "false")
+                    .texto(", DIR = ").json(dirPartes.getFileName() + "/").texto(";\n");
+            w.texto("""
+    (function () {
+      const ALTO = 36, MARGEN = 10, MAX_PARTES = 24, ALTO_MAX = 8e6; // ALTO_MAX: tope de alto de un elemento en los navegadores
+      const vista = document.getElementById('vista'), tabla = document.getElementById('filas'), cuerpo = tabla.tBodies[0];
+      const altoTotal = TOTAL * ALTO, altoDom = Math.min(altoTotal, ALTO_MAX);
+      const cargadas = new Map(), pedidas = new Set();
+      document.getElementById('alto').style.height = altoDom + 'px';
 
-        java.nio.file.Files.createDirectories(destinoHtml.getParent());
-        java.nio.file.Files.writeString(destinoHtml, html, java.nio.charset.StandardCharsets.UTF_8);
-    }
+      // Cada parte_#.js llama a esta función; se conservan las MAX_PARTES usadas más recientemente
+      window.parte = function (k, filas) {
+        pedidas.delete(k);
+        cargadas.set(k, filas);
+        for (const viejo of cargadas.keys()) {
+          if (cargadas.size <= MAX_PARTES) break;
+          cargadas.delete(viejo);
+        }
+        pintar();
+      };
 
-    public static void generarErrores(List<String> erroresLexicos, Path destinoHtml, String equipoId) throws IOException {
-        StringBuilder rows = new StringBuilder();
-        int i = 1;
-        for (String s : erroresLexicos) {
-            rows.append("<tr>")
-                    .append("<td>").append(i++).append("</td>")
-                    .append("<td class='mono'>").append(escape(s)).append("</td>")
-                    .append("</tr>\n");
+      function pedir(k) {
+        if (pedidas.has(k)) return;
+        pedidas.add(k);
+        const s = document.createElement('script');
+        s.src = DIR + 'parte_' + k + '.js';
+        s.onload = s.onerror = () => { pedidas.delete(k); s.remove(); };
+        document.head.appendChild(s);
+      }
+
+      function escala() {
+        const h = vista.clientHeight;
+        return altoDom > h ? (altoTotal - h) / (altoDom - h) : 1;
+      }
+
+      function celda(tr, texto, clase) {
+        const td = tr.insertCell();
+        td.textContent = texto;
+        td.title = texto;
+        if (clase) td.className = clase;
+        return td;
+      }
+
+      // Solo las filas visibles (más MARGEN arriba y abajo) existen en el DOM
+      function pintar() {
+        const h = vista.clientHeight, y = vista.scrollTop * escala();
+        const desde = Math.max(0, Math.floor(y / ALTO) - MARGEN);
+        const hasta = Math.min(TOTAL, Math.ceil((y + h) / ALTO) + MARGEN);
+        tabla.style.top = (vista.scrollTop + desde * ALTO - y) + 'px';
+        cuerpo.textContent = '';
+        let ultima = -1;
+        for (let i = desde; i < hasta; i++) {
+          const k = Math.floor(i / POR_PARTE), filas = cargadas.get(k), tr = cuerpo.insertRow();
+          if (!filas) {
+            pedir(k);
+            celda(tr, '…');
+            for (let c = 0; c < 5; c++) celda(tr, '');
+            continue;
+          }
+          if (k !== ultima) { cargadas.delete(k); cargadas.set(k, filas); ultima = k; }
+          const f = filas[i - k * POR_PARTE];
+          celda(tr, f[0]);
+          celda(tr, f[1], 'mono');
+          celda(tr, f[4] || '', 'mono');
+          tr.insertCell().innerHTML = f[2] ? "<span class='pill ok'>OK</span>" : "<span class='pill err'>ERROR</span>";
+          celda(tr, f[2] ? f[3] : '-', 'mono');
+          const det = celda(tr, f[2] ? '' : f[3], 'mono');
+          if (!f[2]) det.style.color = 'var(--err)';
+          tr.onclick = () => detalle(f);
         }
+      }
 
-        String html = """
+      function detalle(f) {
+        const d = document.getElementById('detalle');
+        if (!f[5]) {
+          d.textContent = 'La operación ' + f[0] + ' no tiene árbol.';
+        } else if (EN_LINEA) {
+          d.innerHTML = f[5];
+        } else {
+          d.innerHTML = '<img alt="" style="max-width:100%;background:#0b1220;border-radius:10px;">';
+          d.firstChild.src = f[5];
+        }
+      }
+
+      let pendiente = false;
+      vista.addEventListener('scroll', () => {
+        if (pendiente) return;
+        pendiente = true;
+        requestAnimationFrame(() => { pendiente = false; pintar(); });
+      });
+      window.addEventListener('resize', pintar);
+      document.getElementById('ir').addEventListener('change', ev => {
+        const n = Math.min(TOTAL, Math.max(1, ev.target.valueAsNumber || 1));
+        vista.scrollTop = (n - 1) * ALTO / escala();
+        pintar();
+      });
+      pintar();
+    })();
+    </script>
+    </body></html>
+    """);
+        }
+    }
+
+    public static void generarErrores(List<String> erroresLexicos, Path destinoHtml, String equipoId) throws IOException {
+        try (EscritorTexto w = EscritorTexto.abrir(destinoHtml)) {
+            w.texto("""
     <!doctype html><html lang="es"><meta charset="utf-8"><title>ERRORES_%s</title>
     %s
     <body>
@@ -141,16 +365,23 @@ public final class HtmlReport {
         <table>
           <thead><tr><th>#</th><th>Detalle</th></tr></thead>
           <tbody>
-    %s
+    """.formatted(escape(equipoId), css(), now(), escape(equipoId)));
+            int i = 1;
+            for (String s : erroresLexicos) {
+                w.texto("<tr>")
+                        .texto("<td>").texto(i++).texto("</td>")
+                        .texto("<td class='mono'>").html(s).texto("</td>")
+                        .texto("</tr>\n");
+            }
+            w.texto("""
+
           </tbody>
         </table>
       </div>
       <footer>Proyecto 2 · Analizador de Operaciones Aritméticas</footer>
     </body></html>
-    """.formatted(escape(equipoId), css(), now(), escape(equipoId), rows.toString());
-
-        Files.createDirectories(destinoHtml.getParent());
-        Files.writeString(destinoHtml, html, StandardCharsets.UTF_8);
+    """);
+        }
     }
 
     private static String now() {
@@ -3,7 +3,6 @@ package app.report;
 import ast.Node;
 import ast.Num;
 import ast.Op;
-import ast.ops.*;
 
 public final class InfixPretty {
     private InfixPretty(){}
@@ -16,25 +15,29 @@ public final class InfixPretty {
             return (v == Math.rint(v)) ? String.valueOf((long)v) : String.valueOf(v);
         }
         if (n instanceof Op op) {
-            if (op instanceof Suma)              return join(op, " + ");
-            if (op instanceof Resta)             return join(op, " - ");
-            if (op instanceof Multiplicacion)    return join(op, " * ");
-            if (op instanceof Division)          return join(op, " / ");
-            if (op instanceof Potencia) {
-                var h = op.getHijos(); // convención: hijos = [exponente, base] (por <P> y la operación)
-                if (h.size()==2) return "(" + render(h.get(1)) + ")^" + render(h.get(0));
-            }
-            if (op instanceof Raiz) {
-                var h = op.getHijos(); // [indice, radicando]
-                if (h.size()==2) return render(h.get(0)) + "√(" + render(h.get(1)) + ")";
-            }
-            if (op instanceof Inverso) {
-                var h = op.getHijos();
-                if (h.size()==1) return "1/(" + render(h.get(0)) + ")";
-            }
-            if (op instanceof Mod) {
-                var h = op.getHijos();
-                if (h.size()==2) return render(h.get(0)) + " % " + render(h.get(1));
+            // Por nombre (no por clase) para que también sirva con las vistas de ast.Arena
+            var h = op.getHijos();
+            switch (op.getNombre()) {
+                case "SUMA":           return join(op, " + ");
+                case "RESTA":          return join(op, " - ");
+                case "MULTIPLICACION": return join(op, " * ");
+                case "DIVISION":       return join(op, " / ");
+                case "POTENCIA":
+                    // convención: hijos = [exponente, base] (por <P> y la operación)
+                    if (h.size()==2) return "(" + render(h.get(1)) + ")^" + render(h.get(0));
+                    break;
+                case "RAIZ":
+                    // [indice, radicando]
+                    if (h.size()==2) return render(h.get(0)) + "√(" + render(h.get(1)) + ")";
+                    break;
+                case "INVERSO":
+                    if (h.size()==1) return "1/(" + render(h.get(0)) + ")";
+                    break;
+                case "MOD":
+                    if (h.size()==2) return render(h.get(0)) + " % " + render(h.get(1));
+                    break;
+                default:
+                    break;
             }
             // fallback
             return op.getNombre() + "(" + join(op.getHijos(), ", ") + ")";
@@ -0,0 +1,45 @@
+package app.report;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * El análisis de un documento como un único objeto JSON (lo que devuelve
+ * app.Servidor):
+ *
+ * {"tokens":N,"resultados":[{fila como en resultados.jsonl}, ...],
+ *  "erroresLexicos":["LEXERROR ...", ...],"erroresSintacticos":["ERROR DE PARSEO: ...", ...],
+ *  "falla":null | "mensaje si el parser abortó"}
+ */
+public final class JsonReport {
+
+    private JsonReport() {
+    }
+
+    /** Escribe el objeto en 'salida' y la cierra. */
+    public static void generar(OutputStream salida, int tokens, List<OperacionResultado> resultados,
+            List<String> erroresLexicos, List<String> erroresSintacticos, String falla) throws IOException {
+        try (EscritorTexto w = EscritorTexto.sobre(salida, 4096)) {
+            w.texto("{\"tokens\":").texto(tokens).texto(",\"resultados\":[");
+            for (int i = 0; i < resultados.size(); i++) {
+                if (i > 0) w.texto(',');
+                SalidaJsonl.objeto(w, resultados.get(i));
+            }
+            w.texto("],\"erroresLexicos\":");
+            lista(w, erroresLexicos);
+            w.texto(",\"erroresSintacticos\":");
+            lista(w, erroresSintacticos);
+            w.texto(",\"falla\":").json(falla).texto("}\n");
+        }
+    }
+
+    private static void lista(EscritorTexto w, List<String> textos) throws IOException {
+        w.texto('[');
+        for (int i = 0; i < textos.size(); i++) {
+            if (i > 0) w.texto(',');
+            w.json(textos.get(i));
+        }
+        w.texto(']');
+    }
+}
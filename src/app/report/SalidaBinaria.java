@@ -0,0 +1,80 @@
+package app.report;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * Formato binario de registros de ancho fijo (big-endian), para leer con
+ * acceso directo: el registro i está en CABECERA + i * REGISTRO.
+ *
+ * resultados.bin: cabecera "LFAR", versión, REGISTRO y 0 (4 enteros), y por
+ * fila:
+ *   int  indice
+ *   int  banderas     (bit 0 = ok)
+ *   long valor        (bits IEEE 754 tal cual, Double.doubleToRawLongBits)
+ *   long desplazamiento de los textos en resultados.str
+ *   int  bytes de la expresión (UTF-8)
+ *   int  bytes del error (UTF-8; 0 si ok)
+ *
+ * resultados.str: los textos seguidos, expresión y error de cada fila.
+ */
+final class SalidaBinaria implements SalidaResultados {
+
+    static final int MAGICO = 0x4C464152; // "LFAR"
+    static final int VERSION = 1;
+    static final int CABECERA = 16, REGISTRO = 32;
+
+    private final DataOutputStream registros;
+    private final OutputStream textos;
+    private long desplazamiento;
+
+    /** Abre resultados.bin y resultados.str en 'carpeta'; si algo falla no deja ninguno abierto. */
+    static SalidaBinaria abrir(Path carpeta, boolean gzip) throws IOException {
+        OutputStream registros = SalidaResultados.flujo(carpeta.resolve("resultados.bin"), gzip);
+        OutputStream textos = null;
+        try {
+            textos = SalidaResultados.flujo(carpeta.resolve("resultados.str"), gzip);
+            return new SalidaBinaria(registros, textos);
+        } catch (IOException | RuntimeException e) {
+            if (textos != null) textos.close();
+            registros.close();
+            throw e;
+        }
+    }
+
+    SalidaBinaria(OutputStream registros, OutputStream textos) throws IOException {
+        this.registros = new DataOutputStream(registros);
+        this.textos = textos;
+        this.registros.writeInt(MAGICO);
+        this.registros.writeInt(VERSION);
+        this.registros.writeInt(REGISTRO);
+        this.registros.writeInt(0);
+    }
+
+    @Override
+    public void escribir(OperacionResultado r) throws IOException {
+        byte[] expresion = r.expresion.getBytes(StandardCharsets.UTF_8);
+        byte[] error = r.ok || r.error == null ? new byte[0] : r.error.getBytes(StandardCharsets.UTF_8);
+        registros.writeInt(r.indice);
+        registros.writeInt(r.ok ? 1 : 0);
+        registros.writeLong(Double.doubleToRawLongBits(r.valor));
+        registros.writeLong(desplazamiento);
+        registros.writeInt(expresion.length);
+        registros.writeInt(error.length);
+        textos.write(expresion);
+        textos.write(error);
+        desplazamiento += expresion.length + error.length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            registros.close();
+        } finally {
+            textos.close();
+        }
+    }
+}
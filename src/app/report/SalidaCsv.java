@@ -0,0 +1,33 @@
+package app.report;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * CSV (RFC 4180, UTF-8) con encabezado indice,expresion,ok,valor,error. El
+ * valor va como en resultados.txt (Double.toString) y vacío en las filas con
+ * error.
+ */
+final class SalidaCsv implements SalidaResultados {
+
+    private final EscritorTexto w;
+
+    SalidaCsv(OutputStream salida) throws IOException {
+        this.w = EscritorTexto.sobre(salida);
+        w.texto("indice,expresion,ok,valor,error\r\n");
+    }
+
+    @Override
+    public void escribir(OperacionResultado r) throws IOException {
+        w.texto(r.indice).texto(',').csv(r.expresion).texto(r.ok ? ",true," : ",false,");
+        if (r.ok) {
+            w.texto(String.valueOf(r.valor));
+        }
+        w.texto(',').csv(r.ok ? null : r.error).texto("\r\n");
+    }
+
+    @Override
+    public void close() throws IOException {
+        w.close();
+    }
+}
@@ -0,0 +1,42 @@
+package app.report;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * JSON Lines: un objeto por fila,
+ * {"indice":1,"expresion":"...","ok":true,"valor":12.0,"error":null}. JSON no
+ * tiene Infinity ni NaN: esos valores van como cadena ("Infinity").
+ */
+final class SalidaJsonl implements SalidaResultados {
+
+    private final EscritorTexto w;
+
+    SalidaJsonl(OutputStream salida) {
+        this.w = EscritorTexto.sobre(salida);
+    }
+
+    @Override
+    public void escribir(OperacionResultado r) throws IOException {
+        objeto(w, r).texto('\n');
+    }
+
+    /** El objeto JSON de una fila (sin salto de línea); JsonReport usa el mismo. */
+    static EscritorTexto objeto(EscritorTexto w, OperacionResultado r) throws IOException {
+        w.texto("{\"indice\":").texto(r.indice).texto(",\"expresion\":").json(r.expresion)
+                .texto(r.ok ? ",\"ok\":true,\"valor\":" : ",\"ok\":false,\"valor\":");
+        if (!r.ok) {
+            w.texto("null");
+        } else if (Double.isFinite(r.valor)) {
+            w.texto(String.valueOf(r.valor));
+        } else {
+            w.json(String.valueOf(r.valor));
+        }
+        return w.texto(",\"error\":").json(r.ok ? null : r.error).texto('}');
+    }
+
+    @Override
+    public void close() throws IOException {
+        w.close();
+    }
+}
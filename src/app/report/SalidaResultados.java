@@ -0,0 +1,70 @@
+package app.report;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Destino de las filas OperacionResultado en un formato legible por otros
+ * programas. Cada fila se escribe apenas se produce (sin guardarlas) y
+ * close() termina el archivo.
+ *
+ * Formatos: "csv" (SalidaCsv), "jsonl" (SalidaJsonl) y "bin" (SalidaBinaria);
+ * con gzip cada archivo lleva además ".gz".
+ */
+public interface SalidaResultados extends Closeable {
+
+    /** Propiedad de sistema: formatos a generar en out/, separados por coma (p. ej. "csv,jsonl"). */
+    String PROPIEDAD = "lfa.salidas";
+    /** Propiedad de sistema (true/false): comprimir las salidas con gzip. */
+    String PROPIEDAD_GZIP = "lfa.salidas.gzip";
+
+    void escribir(OperacionResultado r) throws IOException;
+
+    /** Salida 'formato' en 'carpeta'/resultados.&lt;ext&gt;[.gz]. */
+    static SalidaResultados abrir(String formato, Path carpeta, boolean gzip) throws IOException {
+        return switch (formato.trim().toLowerCase()) {
+            case "csv" -> new SalidaCsv(flujo(carpeta.resolve("resultados.csv"), gzip));
+            case "jsonl" -> new SalidaJsonl(flujo(carpeta.resolve("resultados.jsonl"), gzip));
+            case "bin" -> SalidaBinaria.abrir(carpeta, gzip);
+            default -> throw new IllegalArgumentException("Formato de salida desconocido: " + formato + " (use csv | jsonl | bin)");
+        };
+    }
+
+    /** Las salidas pedidas con -Dlfa.salidas (una sola que reparte a todas), o null si no hay. */
+    static SalidaResultados configurada(Path carpeta) throws IOException {
+        String lista = System.getProperty(PROPIEDAD, "").trim();
+        if (lista.isEmpty()) {
+            return null;
+        }
+        boolean gzip = Boolean.getBoolean(PROPIEDAD_GZIP);
+        List<SalidaResultados> salidas = new ArrayList<>();
+        try {
+            for (String formato : lista.split(",")) {
+                if (!formato.isBlank()) salidas.add(abrir(formato, carpeta, gzip));
+            }
+        } catch (IOException | RuntimeException e) {
+            for (SalidaResultados s : salidas) {
+                s.close();
+            }
+            throw e;
+        }
+        return salidas.size() == 1 ? salidas.get(0) : new SalidaVarias(salidas);
+    }
+
+    /** Flujo con búfer hacia 'destino' (+".gz" y GZIP si corresponde). */
+    static OutputStream flujo(Path destino, boolean gzip) throws IOException {
+        if (destino.getParent() != null) Files.createDirectories(destino.getParent());
+        if (!gzip) {
+            return new BufferedOutputStream(Files.newOutputStream(destino), 1 << 16);
+        }
+        Path gz = destino.resolveSibling(destino.getFileName() + ".gz");
+        return new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(gz), 1 << 16), 1 << 16);
+    }
+}
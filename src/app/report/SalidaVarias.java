@@ -0,0 +1,38 @@
+package app.report;
+
+import java.io.IOException;
+import java.util.List;
+
+/** Reparte cada fila a varias salidas (p. ej. -Dlfa.salidas=csv,bin). */
+final class SalidaVarias implements SalidaResultados {
+
+    private final List<SalidaResultados> salidas;
+
+    SalidaVarias(List<SalidaResultados> salidas) {
+        this.salidas = List.copyOf(salidas);
+    }
+
+    @Override
+    public void escribir(OperacionResultado r) throws IOException {
+        for (SalidaResultados s : salidas) {
+            s.escribir(r);
+        }
+    }
+
+    /** Cierra todas aunque alguna falle; la primera excepción se relanza. */
+    @Override
+    public void close() throws IOException {
+        IOException primera = null;
+        for (SalidaResultados s : salidas) {
+            try {
+                s.close();
+            } catch (IOException e) {
+                if (primera == null) primera = e;
+                else primera.addSuppressed(e);
+            }
+        }
+        if (primera != null) {
+            throw primera;
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package ast;
+
+import ast.ops.OperacionFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bosque de ASTs guardado en arreglos primitivos (struct-of-arrays) en lugar
+ * de un objeto Num/Op + ArrayList por nodo. Por Op: tipo (byte), primer hijo
+ * y cantidad de hijos (int); los hijos de cada Op van contiguos en 'hijos'
+ * (formato CSR). Una referencia r >= 0 es un Op; r < 0 es el literal ~r de
+ * 'valores', que guarda cada valor distinto una sola vez. Así un Op ocupa
+ * 13 bytes y un literal 4, contra 60–100 por nodo del árbol de objetos.
+ *
+ * Los arreglos pueden vivir fuera del heap (ByteBuffer directo). Para los
+ * consumidores existentes (InfixPretty, ArbolGrafico, HtmlReport, evaluadores)
+ * vista() devuelve los árboles como Node livianos que se crean al pedirlos;
+ * evaluate() recorre los arreglos directamente, con los mismos chequeos y
+ * mensajes que las clases de ast.ops.
+ *
+ * Los subárboles compartidos por el Interner se guardan una vez y, como en
+ * el árbol de objetos, se evalúan una vez: el resultado (o la excepción)
+ * queda en 'memo'. Las vistas de un nodo compartido responden esCompartido(),
+ * así ast.vm.Compilador las deja en evaluate() y también pasan por 'memo'.
+ *
+ * Se llena con un Constructor (un árbol de objetos a la vez) y después es
+ * inmutable (salvo 'memo').
+ */
+public final class Arena {
+
+    /** Propiedad de sistema: "heap" o "offheap" guarda los ASTs en una Arena (por defecto no). */
+    public static final String PROPIEDAD = "lfa.arena";
+
+    // ===== Tipos de Op =====
+    private static final String[] NOMBRES = {
+        null, "SUMA", "RESTA", "MULTIPLICACION", "DIVISION", "POTENCIA", "RAIZ", "INVERSO", "MOD"
+    };
+    private static final byte SUMA = 1, RESTA = 2, MULTIPLICACION = 3, DIVISION = 4,
+            POTENCIA = 5, RAIZ = 6, INVERSO = 7, MOD = 8;
+    private static final Class<?>[] CLASES = new Class<?>[NOMBRES.length];
+
+    static {
+        for (int t = 1; t < NOMBRES.length; t++) CLASES[t] = OperacionFactory.of(NOMBRES[t]).getClass();
+    }
+
+    private final ByteBuffer tipos;
+    private final IntBuffer primero;   // índice del primer hijo en 'hijos'
+    private final IntBuffer cantidad;
+    private final IntBuffer hijos;     // referencias (ver arriba)
+    private final DoubleBuffer valores;
+    private final int[] raices;        // referencias
+    private final BitSet compartidos;  // Op guardados una vez para varios padres
+    private final Map<Integer, Object> memo = new ConcurrentHashMap<>(); // Double o RuntimeException
+
+    private Arena(Constructor c, boolean fueraDelHeap) {
+        tipos = bytes(c.nNodos, fueraDelHeap).put(c.tipos, 0, c.nNodos).flip();
+        primero = bytes(c.nNodos * 4, fueraDelHeap).asIntBuffer().put(c.primero, 0, c.nNodos).flip();
+        cantidad = bytes(c.nNodos * 4, fueraDelHeap).asIntBuffer().put(c.cantidad, 0, c.nNodos).flip();
+        hijos = bytes(c.nHijos * 4, fueraDelHeap).asIntBuffer().put(c.hijos, 0, c.nHijos).flip();
+        valores = bytes(c.nValores * 8, fueraDelHeap).asDoubleBuffer().put(c.valores, 0, c.nValores).flip();
+        raices = Arrays.copyOf(c.raices, c.nRaices);
+        compartidos = (BitSet) c.marcados.clone();
+    }
+
+    private static ByteBuffer bytes(int n, boolean fueraDelHeap) {
+        return (fueraDelHeap ? ByteBuffer.allocateDirect(n) : ByteBuffer.allocate(n)).order(ByteOrder.nativeOrder());
+    }
+
+    /** Cantidad de Op guardados (los subárboles compartidos cuentan una vez). */
+    public int operaciones() {
+        return tipos.limit();
+    }
+
+    /** Bytes ocupados por los arreglos. */
+    public long bytes() {
+        return tipos.capacity() + 4L * (primero.capacity() + cantidad.capacity() + hijos.capacity())
+                + 8L * valores.capacity() + 4L * raices.length;
+    }
+
+    /** Árboles de nivel superior como Node (vistas creadas al pedirlas, no guardadas). */
+    public List<Node> vista() {
+        return new AbstractList<>() {
+            @Override
+            public Node get(int i) {
+                return nodo(raices[i]);
+            }
+
+            @Override
+            public int size() {
+                return raices.length;
+            }
+        };
+    }
+
+    private Node nodo(int ref) {
+        return ref < 0 ? new Num(valores.get(~ref)) : new Vista(this, ref, NOMBRES[tipos.get(ref)]);
+    }
+
+    /** true si 'n' es una vista de una Arena: se calcula como la Op de ast.ops de igual nombre. */
+    public static boolean esVista(Node n) {
+        return n instanceof Vista;
+    }
+
+    /** Evalúa la referencia sobre los arreglos; un nodo compartido se calcula una sola vez. */
+    double evaluar(int n) {
+        if (n < 0) {
+            return valores.get(~n);
+        }
+        if (!compartidos.get(n)) {
+            return calcular(n);
+        }
+        Object r = memo.get(n);
+        if (r == null) {
+            try {
+                r = calcular(n);
+            } catch (RuntimeException e) {
+                r = e;
+            }
+            memo.putIfAbsent(n, r);
+        }
+        if (r instanceof RuntimeException e) {
+            throw e;
+        }
+        return (Double) r;
+    }
+
+    /** Calcula el Op 'n' (mismo orden de chequeos que ast.ops). */
+    private double calcular(int n) {
+        byte t = tipos.get(n);
+        int h = primero.get(n), k = cantidad.get(n);
+        switch (t) {
+            case SUMA -> {
+                aridad(t, k, 2, -1);
+                double acc = 0.0;
+                for (int i = 0; i < k; i++) acc += evaluar(hijos.get(h + i));
+                return acc;
+            }
+            case MULTIPLICACION -> {
+                aridad(t, k, 2, -1);
+                double acc = 1.0;
+                for (int i = 0; i < k; i++) acc *= evaluar(hijos.get(h + i));
+                return acc;
+            }
+            case RESTA -> {
+                aridad(t, k, 2, -1);
+                double acc = evaluar(hijos.get(h));
+                for (int i = 1; i < k; i++) acc -= evaluar(hijos.get(h + i));
+                return acc;
+            }
+            case DIVISION -> {
+                aridad(t, k, 2, -1);
+                double acc = evaluar(hijos.get(h));
+                for (int i = 1; i < k; i++) {
+                    double d = evaluar(hijos.get(h + i));
+                    if (d == 0.0) throw new ArithmeticException("DIVISION por cero");
+                    acc /= d;
+                }
+                return acc;
+            }
+            case POTENCIA -> {
+                aridad(t, k, 2, 2);
+                double base = evaluar(hijos.get(h));
+                double exp = evaluar(hijos.get(h + 1));
+                return Math.pow(base, exp);
+            }
+            case RAIZ -> {
+                if (k == 1) {
+                    double x = evaluar(hijos.get(h));
+                    if (x < 0) throw new ArithmeticException("RAIZ de negativo");
+                    return Math.sqrt(x);
+                }
+                aridad(t, k, 2, 2);
+                double grado = evaluar(hijos.get(h));
+                double x = evaluar(hijos.get(h + 1));
+                if (grado == 0) throw new ArithmeticException("RAIZ con grado 0");
+                if (x < 0 && (Math.floor(grado) == grado) && (((int) grado) % 2 == 0)) {
+                    throw new ArithmeticException("RAIZ par de negativo");
+                }
+                return Math.pow(x, 1.0 / grado);
+            }
+            case INVERSO -> {
+                aridad(t, k, 1, 1);
+                double x = evaluar(hijos.get(h));
+                if (x == 0.0) throw new ArithmeticException("INVERSO de 0");
+                return 1.0 / x;
+            }
+            case MOD -> {
+                aridad(t, k, 2, 2);
+                double a = evaluar(hijos.get(h));
+                double b = evaluar(hijos.get(h + 1));
+                if (b == 0.0) throw new ArithmeticException("MOD por 0");
+                return a % b;
+            }
+            default -> throw new IllegalStateException("Tipo de nodo inválido: " + t);
+        }
+    }
+
+    private static void aridad(byte tipo, int k, int min, int max) {
+        String error = Op.errorAridad(NOMBRES[tipo], k, min, max);
+        if (error != null) {
+            throw new IllegalArgumentException(error);
+        }
+    }
+
+    /**
+     * Op liviano sobre un nodo de la arena: cada hijo se crea la primera vez
+     * que se lo pide y la vista lo conserva, así recorrerla varias veces
+     * (compilarla, dibujarla) no vuelve a crear nodos.
+     */
+    private static final class Vista extends Op {
+        private final Arena arena;
+        private final int indice;
+
+        Vista(Arena arena, int indice, String nombre) {
+            super(nombre, new Hijos(arena, indice));
+            this.arena = arena;
+            this.indice = indice;
+        }
+
+        @Override
+        public boolean esCompartido() {
+            return arena.compartidos.get(indice);
+        }
+
+        @Override
+        protected double calcular() {
+            return arena.evaluar(indice);
+        }
+    }
+
+    private static final class Hijos extends AbstractList<Node> {
+        private final Arena arena;
+        private final int primero;
+        private final Node[] creados;
+
+        Hijos(Arena arena, int indice) {
+            this.arena = arena;
+            this.primero = arena.primero.get(indice);
+            this.creados = new Node[arena.cantidad.get(indice)];
+        }
+
+        @Override
+        public Node get(int i) {
+            Node n = creados[i];
+            if (n == null) {
+                n = arena.nodo(arena.hijos.get(primero + i));
+                creados[i] = n; // si dos hilos lo crean a la vez, cualquiera de los dos sirve
+            }
+            return n;
+        }
+
+        @Override
+        public int size() {
+            return creados.length;
+        }
+    }
+
+    /**
+     * Llena una Arena a partir de árboles de objetos, uno por vez (así el
+     * parser no necesita tener todo el bosque como objetos). Los subárboles
+     * compartidos por el Interner se guardan una sola vez.
+     */
+    public static final class Constructor {
+        private byte[] tipos = new byte[1024];
+        private int[] primero = new int[1024];
+        private int[] cantidad = new int[1024];
+        private int nNodos = 0;
+        private int[] hijos = new int[1024];
+        private int nHijos = 0;
+        private double[] valores = new double[256];
+        private int nValores = 0;
+        private final Map<Long, Integer> indiceValor = new HashMap<>();
+        private int[] raices = new int[64];
+        private int nRaices = 0;
+        private final Map<Node, Integer> compartidos = new IdentityHashMap<>();
+        private final BitSet marcados = new BitSet();
+
+        /** Agrega 'raiz' como árbol de nivel superior (solo Num y las Op de ast.ops). */
+        public void agregar(Node raiz) {
+            int n = guardar(raiz);
+            if (nRaices == raices.length) raices = Arrays.copyOf(raices, nRaices * 2);
+            raices[nRaices++] = n;
+        }
+
+        public Arena construir(boolean fueraDelHeap) {
+            return new Arena(this, fueraDelHeap);
+        }
+
+        private int guardar(Node x) {
+            if (x.getClass() == Num.class) {
+                double v = x.evaluate();
+                Integer i = indiceValor.get(Double.doubleToLongBits(v));
+                if (i == null) {
+                    if (nValores == valores.length) valores = Arrays.copyOf(valores, nValores * 2);
+                    valores[nValores] = v;
+                    i = nValores++;
+                    indiceValor.put(Double.doubleToLongBits(v), i);
+                }
+                return ~i;
+            }
+            if (!(x instanceof Op op)) {
+                throw new IllegalArgumentException("Nodo no soportado en Arena: " + x.getClass().getName());
+            }
+            Integer ya = op.esCompartido() ? compartidos.get(op) : null;
+            if (ya != null) {
+                return ya;
+            }
+            byte tipo = tipo(op);
+            List<Node> hs = op.getHijos();
+            int[] ids = new int[hs.size()];
+            for (int i = 0; i < ids.length; i++) ids[i] = guardar(hs.get(i));
+            // los hijos quedan contiguos recién cuando se conocen todos sus índices
+            while (nHijos + ids.length > hijos.length) hijos = Arrays.copyOf(hijos, hijos.length * 2);
+            System.arraycopy(ids, 0, hijos, nHijos, ids.length);
+            int n = nodo(tipo, nHijos, ids.length);
+            nHijos += ids.length;
+            if (op.esCompartido()) {
+                compartidos.put(op, n);
+                marcados.set(n);
+            }
+            return n;
+        }
+
+        private int nodo(byte tipo, int primer, int cant) {
+            if (nNodos == tipos.length) {
+                int c = nNodos * 2;
+                tipos = Arrays.copyOf(tipos, c);
+                primero = Arrays.copyOf(primero, c);
+                cantidad = Arrays.copyOf(cantidad, c);
+            }
+            tipos[nNodos] = tipo;
+            primero[nNodos] = primer;
+            cantidad[nNodos] = cant;
+            return nNodos++;
+        }
+
+        private static byte tipo(Op op) {
+            for (byte t = 1; t < NOMBRES.length; t++) {
+                if (op.getClass() == CLASES[t]) {
+                    return t;
+                }
+            }
+            throw new IllegalArgumentException("Nodo no soportado en Arena: " + op.getClass().getName());
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package ast;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache LRU de resultados de subárboles, compartida entre documentos y
+ * análisis. La clave es la estructura del subárbol (nombre, aridad y literales,
+ * con un hash de 64 bits precalculado en el Op); ante igualdad de hash se
+ * compara la estructura completa, así que una colisión nunca devuelve un valor
+ * ajeno. Se guarda el resultado tal cual: el double o la excepción (p. ej.
+ * "DIVISION por cero"), para que las filas de error salgan idénticas.
+ *
+ * Op.evaluate() la consulta para subárboles con al menos 'minNodos' nodos.
+ * Desactivada por defecto; se activa con -Dlfa.cache=N (N entradas) y
+ * -Dlfa.cache.nodos=M, o con activar(...).
+ */
+public final class CacheEvaluacion {
+
+    /** Propiedad de sistema con la capacidad en entradas (0 = sin cache). */
+    public static final String PROPIEDAD_CAPACIDAD = "lfa.cache";
+    /** Propiedad de sistema con el tamaño mínimo de subárbol cacheado (por defecto 16 nodos). */
+    public static final String PROPIEDAD_NODOS = "lfa.cache.nodos";
+
+    private static volatile CacheEvaluacion activa = desdePropiedades();
+
+    private final int capacidad;
+    private final int minNodos;
+    private final LinkedHashMap<ClaveEstructural, Object> entradas;
+    private long aciertos, fallos, desalojos;
+
+    public CacheEvaluacion(int capacidad, int minNodos) {
+        this.capacidad = Math.max(1, capacidad);
+        this.minNodos = Math.max(1, minNodos);
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ClaveEstructural, Object> e) {
+                if (size() > CacheEvaluacion.this.capacidad) {
+                    desalojos++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    private static CacheEvaluacion desdePropiedades() {
+        try {
+            int capacidad = Integer.parseInt(System.getProperty(PROPIEDAD_CAPACIDAD, "0").trim());
+            int nodos = Integer.parseInt(System.getProperty(PROPIEDAD_NODOS, "16").trim());
+            return capacidad > 0 ? new CacheEvaluacion(capacidad, nodos) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /** Cache en uso, o null si está desactivada. */
+    public static CacheEvaluacion activa() {
+        return activa;
+    }
+
+    /** Instala una cache nueva (vacía) para todo el proceso. */
+    public static CacheEvaluacion activar(int capacidad, int minNodos) {
+        CacheEvaluacion c = new CacheEvaluacion(capacidad, minNodos);
+        activa = c;
+        return c;
+    }
+
+    public static void desactivar() {
+        activa = null;
+    }
+
+    /** true si 'op' es lo bastante grande para pasar por la cache. */
+    public boolean cubre(Op op) {
+        return op.tamano() >= minNodos;
+    }
+
+    /**
+     * Resultado de 'op' (Double o RuntimeException). Si no está, se calcula
+     * fuera del candado y se guarda; dos hilos pueden calcularlo a la vez.
+     */
+    Object resultado(Op op) {
+        ClaveEstructural clave = new ClaveEstructural(op);
+        synchronized (this) {
+            Object r = entradas.get(clave);
+            if (r != null) {
+                aciertos++;
+                return r;
+            }
+            fallos++;
+        }
+        Object r = op.resultado();
+        synchronized (this) {
+            entradas.putIfAbsent(clave, r);
+        }
+        return r;
+    }
+
+    public synchronized long aciertos() {
+        return aciertos;
+    }
+
+    public synchronized long fallos() {
+        return fallos;
+    }
+
+    public synchronized long desalojos() {
+        return desalojos;
+    }
+
+    public synchronized int tamano() {
+        return entradas.size();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "Cache de evaluación: entradas=" + entradas.size() + "/" + capacidad
+                + " aciertos=" + aciertos + " fallos=" + fallos + " desalojos=" + desalojos;
+    }
+}
@@ -0,0 +1,67 @@
+package ast;
+
+import java.util.ArrayDeque;
+import java.util.List;
+
+/**
+ * Clave de mapa para un árbol según su estructura (nombre, aridad y literales),
+ * no su identidad: dos ASTs iguales de documentos distintos dan claves iguales.
+ * hashCode usa el hash de 64 bits precalculado en el Op; ante igualdad de hash
+ * equals compara la estructura completa, así que una colisión nunca mezcla
+ * árboles distintos. La clave retiene el árbol.
+ */
+public final class ClaveEstructural {
+
+    private final Op nodo;
+    private final long hash;
+
+    public ClaveEstructural(Op nodo) {
+        this.nodo = nodo;
+        this.hash = nodo.hashCache();
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(hash);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ClaveEstructural c && hash == c.hash && mismaEstructura(nodo, c.nodo);
+    }
+
+    /** Igualdad estructural completa (iterativa; corta por identidad en subárboles compartidos). */
+    static boolean mismaEstructura(Node a, Node b) {
+        ArrayDeque<Node> pila = new ArrayDeque<>();
+        pila.push(a);
+        pila.push(b);
+        while (!pila.isEmpty()) {
+            Node y = pila.pop(), x = pila.pop();
+            if (x == y) {
+                continue;
+            }
+            if (x.getClass() != y.getClass()) {
+                return false;
+            }
+            if (x.getClass() == Num.class) {
+                if (Double.doubleToLongBits(x.evaluate()) != Double.doubleToLongBits(y.evaluate())) {
+                    return false;
+                }
+                continue;
+            }
+            if (!(x instanceof Op ox) || !(y instanceof Op oy)) {
+                return false; // otros nodos: solo iguales por identidad
+            }
+            List<Node> hx = ox.getHijos(), hy = oy.getHijos();
+            if (!ox.getNombre().equals(oy.getNombre()) || hx.size() != hy.size()
+                    || ox.hashCache() != oy.hashCache()) {
+                return false;
+            }
+            for (int i = 0; i < hx.size(); i++) {
+                pila.push(hx.get(i));
+                pila.push(hy.get(i));
+            }
+        }
+        return true;
+    }
+}
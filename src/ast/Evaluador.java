@@ -0,0 +1,14 @@
+package ast;
+
+/**
+ * Estrategia para evaluar un AST completo. Todas las implementaciones deben
+ * dar el mismo valor y lanzar las mismas excepciones (tipo y mensaje) que
+ * Node.evaluate().
+ */
+@FunctionalInterface
+public interface Evaluador {
+    double evaluar(Node raiz);
+
+    /** Recorrido del árbol: llamada virtual a evaluate() por nodo. */
+    Evaluador ARBOL = Node::evaluate;
+}
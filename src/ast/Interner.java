@@ -0,0 +1,113 @@
+package ast;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hash-consing de subárboles: dos subárboles estructuralmente iguales (misma
+ * operación, misma aridad y mismos literales) se guardan una sola vez, así el
+ * bosque del documento pasa a ser un DAG. Un nodo que se entrega a más de un
+ * padre queda marcado como compartido y Op.evaluate() lo calcula una sola vez.
+ *
+ * Se interna de abajo hacia arriba (primero los hijos), así que para comparar
+ * dos Op alcanza con comparar sus hijos por identidad. Un Interner por
+ * análisis; no es seguro entre hilos.
+ */
+public final class Interner {
+
+    private final Map<Clave, Node> tabla = new HashMap<>();
+    private int pedidos = 0;
+
+    /** Clave con el hash estructural precalculado; equals compara un nivel. */
+    private static final class Clave {
+        final Node nodo;
+        final int hash;
+
+        Clave(Node nodo, int hash) {
+            this.nodo = nodo;
+            this.hash = hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Clave c && hash == c.hash && mismoNivel(nodo, c.nodo);
+        }
+    }
+
+    /**
+     * Devuelve el representante canónico de 'n'. Los hijos de un Op ya deben
+     * venir internados. Nodos que no son Num ni Op se devuelven tal cual.
+     */
+    public Node internar(Node n) {
+        if (n.getClass() != Num.class && !(n instanceof Op)) {
+            return n;
+        }
+        int hash = hashDe(n);
+        pedidos++;
+        Node canonico = tabla.putIfAbsent(new Clave(n, hash), n);
+        if (canonico == null) {
+            if (n instanceof Op op) op.fijarHash(hash);
+            return n;
+        }
+        if (canonico instanceof Op op) op.marcarCompartido();
+        return canonico;
+    }
+
+    /** Nodos distintos guardados. */
+    public int distintos() {
+        return tabla.size();
+    }
+
+    /** Llamadas a internar() de Num/Op (distintos() / pedidos() = proporción sin repetir). */
+    public int pedidos() {
+        return pedidos;
+    }
+
+    /** Hash estructural: literal para Num; nombre, aridad y hash de los hijos para Op. */
+    private static int hashDe(Node n) {
+        if (n.getClass() == Num.class) {
+            return Double.hashCode(n.evaluate());
+        }
+        if (!(n instanceof Op op)) {
+            return System.identityHashCode(n);
+        }
+        if (op.hashEstructural() != 0) {
+            return op.hashEstructural(); // ya canonizado
+        }
+        List<Node> hijos = op.getHijos();
+        int h = op.getNombre().hashCode() * 31 + hijos.size();
+        for (Node x : hijos) {
+            h = h * 31 + hashDe(x);
+        }
+        return h == 0 ? 1 : h;
+    }
+
+    private static boolean mismoNivel(Node a, Node b) {
+        if (a.getClass() != b.getClass()) {
+            return false;
+        }
+        if (a instanceof Num) {
+            return Double.doubleToLongBits(a.evaluate()) == Double.doubleToLongBits(b.evaluate());
+        }
+        Op x = (Op) a, y = (Op) b;
+        if (!x.getNombre().equals(y.getNombre())) {
+            return false;
+        }
+        List<Node> hx = x.getHijos(), hy = y.getHijos();
+        if (hx.size() != hy.size()) {
+            return false;
+        }
+        for (int i = 0; i < hx.size(); i++) {
+            if (hx.get(i) != hy.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
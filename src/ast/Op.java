@@ -8,26 +8,127 @@ public abstract class Op implements Node {
     protected final String nombre;       // SUMA, RESTA, etc.
     protected final List<Node> hijos;    // operandos (2+ o 1, según operación)
 
+    // Hash-consing (ver Interner): un nodo compartido por varios padres guarda su resultado
+    private int hashEstructural;
+    private boolean compartido;
+    private volatile Object memo;        // Double o la RuntimeException que lanzó
+
+    // Para CacheEvaluacion (se calculan la primera vez que se piden)
+    private long hashCache;
+    private int tamano;
+
     protected Op(String nombre) {
         this.nombre = nombre;
         this.hijos = new ArrayList<>();
     }
 
+    /** Para vistas que ya traen su propia lista de hijos (ver Arena). */
+    protected Op(String nombre, List<Node> hijos) {
+        this.nombre = nombre;
+        this.hijos = hijos;
+    }
+
     public void add(Node n) { hijos.add(n); }
 
     public List<Node> getHijos() { return hijos; }
 
     public String getNombre() { return nombre; }
 
+    /**
+     * Evalúa la operación. Si el nodo está compartido (DAG del Interner) se
+     * calcula una sola vez: las siguientes llamadas devuelven el mismo valor o
+     * relanzan la misma excepción. Si hay CacheEvaluacion activa y el subárbol
+     * es lo bastante grande, el resultado sale de (o queda en) la cache.
+     */
+    @Override
+    public final double evaluate() {
+        Object r = memo;
+        if (r == null) {
+            CacheEvaluacion cache = CacheEvaluacion.activa();
+            boolean enCache = cache != null && cache.cubre(this);
+            if (!enCache && !compartido) {
+                return calcular();
+            }
+            r = enCache ? cache.resultado(this) : resultado();
+            if (compartido) {
+                memo = r;
+            }
+        }
+        if (r instanceof RuntimeException e) {
+            throw e;
+        }
+        return (Double) r;
+    }
+
+    /** calcular() con la excepción como valor: Double o RuntimeException. */
+    Object resultado() {
+        try {
+            return calcular();
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+
+    /** Cálculo propio de cada operación (sobre los evaluate() de los hijos). */
+    protected abstract double calcular();
+
+    /** true si el Interner entregó este nodo a más de un padre. */
+    public boolean esCompartido() { return compartido; }
+
+    void marcarCompartido() { compartido = true; }
+
+    int hashEstructural() { return hashEstructural; }
+
+    /** Lo llama el Interner al canonizar el nodo: fija el hash y libera la capacidad sobrante. */
+    void fijarHash(int hash) {
+        hashEstructural = hash;
+        if (hijos instanceof ArrayList<Node> lista) lista.trimToSize();
+    }
+
+    /** Cantidad de nodos del subárbol (contando repetidos). */
+    int tamano() {
+        if (tamano == 0) {
+            long k = 1;
+            for (Node h : hijos) k += h instanceof Op op ? op.tamano() : 1;
+            tamano = (int) Math.min(k, Integer.MAX_VALUE);
+        }
+        return tamano;
+    }
+
+    /** Hash estructural de 64 bits (nombre, aridad, literales) para ClaveEstructural. */
+    long hashCache() {
+        if (hashCache == 0) {
+            long h = nombre.hashCode() * 0x9E3779B97F4A7C15L + hijos.size();
+            for (Node x : hijos) {
+                long hx = x instanceof Op op ? op.hashCache()
+                        : x.getClass() == Num.class ? Double.doubleToLongBits(x.evaluate())
+                        : System.identityHashCode(x);
+                h = Long.rotateLeft(h * 0xC2B2AE3D27D4EB4FL, 31) ^ hx;
+            }
+            hashCache = h == 0 ? 1 : h;
+        }
+        return hashCache;
+    }
+
     /** Validación de cantidad mínima/máxima de hijos. max<0 significa "sin tope". */
     protected void exigirAridad(int min, int max) {
-        int k = hijos.size();
+        String error = errorAridad(min, max);
+        if (error != null) {
+            throw new IllegalArgumentException(error);
+        }
+    }
+
+    /** Mensaje que lanzaría exigirAridad(min, max), o null si la aridad es válida. */
+    public String errorAridad(int min, int max) {
+        return errorAridad(nombre, hijos.size(), min, max);
+    }
+
+    static String errorAridad(String nombre, int k, int min, int max) {
         if (k < min || (max >= 0 && k > max)) {
-            throw new IllegalArgumentException(
-                "Operación " + nombre + " con aridad inválida: " + k +
-                " (esperado min=" + min + ", max=" + (max<0?"∞":max) + ")"
-            );
+            return "Operación " + nombre + " con aridad inválida: " + k +
+                " (esperado min=" + min + ", max=" + (max<0?"∞":max) + ")";
         }
+        return null;
     }
 
     @Override
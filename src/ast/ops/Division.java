@@ -6,7 +6,7 @@ public class Division extends Op {
     public Division() { super("DIVISION"); }
 
     @Override
-    public double evaluate() {
+    protected double calcular() {
         exigirAridad(2, -1);
         double acc = hijos.get(0).evaluate();
         for (int i=1;i<hijos.size();i++) {
@@ -6,7 +6,7 @@ public class Inverso extends Op {
     public Inverso() { super("INVERSO"); }
 
     @Override
-    public double evaluate() {
+    protected double calcular() {
         exigirAridad(1, 1);
         double x = hijos.get(0).evaluate();
         if (x == 0.0) throw new ArithmeticException("INVERSO de 0");
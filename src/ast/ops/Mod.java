@@ -6,7 +6,7 @@ public class Mod extends Op {
     public Mod() { super("MOD"); }
 
     @Override
-    public double evaluate() {
+    protected double calcular() {
         exigirAridad(2, 2);
         double a = hijos.get(0).evaluate();
         double b = hijos.get(1).evaluate();
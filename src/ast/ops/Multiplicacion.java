@@ -7,7 +7,7 @@ public class Multiplicacion extends Op {
     public Multiplicacion() { super("MULTIPLICACION"); }
 
     @Override
-    public double evaluate() {
+    protected double calcular() {
         exigirAridad(2, -1);
         double acc = 1.0;
         for (Node n : hijos) acc *= n.evaluate();
@@ -6,7 +6,7 @@ public class Potencia extends Op {
     public Potencia() { super("POTENCIA"); }
 
     @Override
-    public double evaluate() {
+    protected double calcular() {
         exigirAridad(2, 2); // base^exponente
         double base = hijos.get(0).evaluate();
         double exp  = hijos.get(1).evaluate();
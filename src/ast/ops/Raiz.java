@@ -6,7 +6,7 @@ public class Raiz extends Op {
     public Raiz() { super("RAIZ"); }
 
     @Override
-    public double evaluate() {
+    protected double calcular() {
         // Convención: RAIZ(grado, radicando)  → si sólo dan 1 hijo, asumimos grado=2 (raíz cuadrada)
         if (hijos.size() == 1) {
             double x = hijos.get(0).evaluate();
@@ -7,7 +7,7 @@ public class Suma extends Op {
     public Suma() { super("SUMA"); }
 
     @Override
-    public double evaluate() {
+    protected double calcular() {
         exigirAridad(2, -1); // 2 o más
         double acc = 0.0;
         for (Node n : hijos) acc += n.evaluate();
@@ -0,0 +1,185 @@
+package ast.vm;
+
+import ast.Arena;
+import ast.CacheEvaluacion;
+import ast.Evaluador;
+import ast.Node;
+import ast.Num;
+import ast.Op;
+import ast.ops.Division;
+import ast.ops.Inverso;
+import ast.ops.Mod;
+import ast.ops.Multiplicacion;
+import ast.ops.Potencia;
+import ast.ops.Raiz;
+import ast.ops.Resta;
+import ast.ops.Suma;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Baja un AST a un Programa postfijo. La aridad se revisa UNA vez aquí: si un
+ * nodo no la cumple se emite una instrucción ARIDAD en su lugar, que lanza el
+ * mismo IllegalArgumentException cuando la ejecución llega a ese punto (igual
+ * que exigirAridad() dentro de evaluate()).
+ *
+ * Las operaciones n-arias se emiten como cadenas binarias (a b OP c OP ...)
+ * para que cada chequeo ocurra en el mismo orden que en el recorrido del
+ * árbol. Se despacha por nombre para que las vistas de una Arena compilen
+ * igual que las clases de ast.ops. Las demás Op, los nodos compartidos (por el
+ * Interner o guardados una vez en la Arena) y los que cubre la
+ * CacheEvaluacion se delegan a su evaluate().
+ */
+public final class Compilador {
+
+    /** Evaluador que compila y ejecuta en la VM de pila. */
+    public static final Evaluador EVALUADOR = raiz -> compilar(raiz).ejecutar();
+
+    private int[] codigo = new int[16];
+    private int largo = 0;
+    private double[] constantes = new double[8];
+    private int nConstantes = 0;
+    private final List<String> mensajes = new ArrayList<>();
+    private final List<Node> nodos = new ArrayList<>();
+    private int pila = 0, maxPila = 0;
+
+    private Compilador() {
+    }
+
+    public static Programa compilar(Node raiz) {
+        Compilador c = new Compilador();
+        c.emitirNodo(raiz);
+        return new Programa(Arrays.copyOf(c.codigo, c.largo), Arrays.copyOf(c.constantes, c.nConstantes),
+                c.mensajes.toArray(new String[0]), c.nodos.toArray(new Node[0]), Math.max(1, c.maxPila));
+    }
+
+    private void emitirNodo(Node n) {
+        if (n.getClass() == Num.class) {
+            constante(n.evaluate());
+            return;
+        }
+        if (!(n instanceof Op op) || op.esCompartido() || enCache(op)) {
+            externo(n); // compartidos (Interner, Arena) y cacheados (CacheEvaluacion) resuelven en evaluate()
+            return;
+        }
+        List<Node> h = op.getHijos();
+        switch (operacion(op)) {
+            case "SUMA" -> {
+                if (aridad(op, 2, -1)) {
+                    constante(0.0);
+                    for (Node x : h) binaria(x, Programa.SUMAR);
+                }
+            }
+            case "MULTIPLICACION" -> {
+                if (aridad(op, 2, -1)) {
+                    constante(1.0);
+                    for (Node x : h) binaria(x, Programa.MULTIPLICAR);
+                }
+            }
+            case "RESTA" -> {
+                if (aridad(op, 2, -1)) {
+                    emitirNodo(h.get(0));
+                    for (int i = 1; i < h.size(); i++) binaria(h.get(i), Programa.RESTAR);
+                }
+            }
+            case "DIVISION" -> {
+                if (aridad(op, 2, -1)) {
+                    emitirNodo(h.get(0));
+                    for (int i = 1; i < h.size(); i++) binaria(h.get(i), Programa.DIVIDIR);
+                }
+            }
+            case "POTENCIA" -> {
+                if (aridad(op, 2, 2)) {
+                    emitirNodo(h.get(0));
+                    binaria(h.get(1), Programa.POTENCIA);
+                }
+            }
+            case "MOD" -> {
+                if (aridad(op, 2, 2)) {
+                    emitirNodo(h.get(0));
+                    binaria(h.get(1), Programa.MOD);
+                }
+            }
+            case "INVERSO" -> {
+                if (aridad(op, 1, 1)) {
+                    emitirNodo(h.get(0));
+                    emitir(Programa.INVERSO);
+                }
+            }
+            case "RAIZ" -> {
+                if (h.size() == 1) { // RAIZ(x) = raíz cuadrada (no pasa por exigirAridad)
+                    emitirNodo(h.get(0));
+                    emitir(Programa.RAIZ_CUADRADA);
+                } else if (aridad(op, 2, 2)) {
+                    emitirNodo(h.get(0));
+                    binaria(h.get(1), Programa.RAIZ);
+                }
+            }
+            default -> externo(n);
+        }
+    }
+
+    /**
+     * Nombre de la operación si se calcula como la clase de ast.ops de ese
+     * nombre (las propias clases y las vistas de una Arena); "" para cualquier
+     * otra Op, que se delega a su evaluate().
+     */
+    private static String operacion(Op op) {
+        Class<?> k = op.getClass();
+        boolean conocida = k == Suma.class || k == Multiplicacion.class || k == Resta.class || k == Division.class
+                || k == Potencia.class || k == Mod.class || k == Inverso.class || k == Raiz.class
+                || Arena.esVista(op);
+        return conocida ? op.getNombre() : "";
+    }
+
+    /** true si la aridad es válida; si no, emite la trampa ARIDAD (deja un valor "virtual" en la pila). */
+    private boolean aridad(Op op, int min, int max) {
+        String error = op.errorAridad(min, max);
+        if (error == null) {
+            return true;
+        }
+        mensajes.add(error);
+        emitir(Programa.ARIDAD, mensajes.size() - 1);
+        empujar();
+        return false;
+    }
+
+    private static boolean enCache(Op op) {
+        CacheEvaluacion cache = CacheEvaluacion.activa();
+        return cache != null && cache.cubre(op);
+    }
+
+    private void binaria(Node derecho, int opcode) {
+        emitirNodo(derecho);
+        emitir(opcode);
+        pila--;
+    }
+
+    private void constante(double v) {
+        if (nConstantes == constantes.length) constantes = Arrays.copyOf(constantes, nConstantes * 2);
+        constantes[nConstantes] = v;
+        emitir(Programa.CONST, nConstantes++);
+        empujar();
+    }
+
+    private void externo(Node n) {
+        nodos.add(n);
+        emitir(Programa.NODO, nodos.size() - 1);
+        empujar();
+    }
+
+    private void empujar() {
+        if (++pila > maxPila) maxPila = pila;
+    }
+
+    private void emitir(int opcode) {
+        if (largo == codigo.length) codigo = Arrays.copyOf(codigo, largo * 2);
+        codigo[largo++] = opcode;
+    }
+
+    private void emitir(int opcode, int operando) {
+        emitir(opcode);
+        emitir(operando);
+    }
+}
@@ -0,0 +1,130 @@
+package ast.vm;
+
+import ast.ClaveEstructural;
+import ast.Evaluador;
+import ast.Node;
+import ast.Op;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Evaluador que genera bytecode (Jit) solo para los árboles que lo valen: los
+ * que ya se evaluaron 'reuso' veces o que tienen al menos 'tamano' nodos. El
+ * resto, y los que Jit no puede compilar, se evalúan con el recorrido del árbol.
+ *
+ * Los árboles se recuerdan por estructura (ClaveEstructural), no por
+ * identidad: la misma expresión repetida en un documento, en otro documento o
+ * en otra petición del servidor cuenta como reuso y comparte un único código
+ * compilado. El mapa es LRU con 'capacidad' entradas (-Dlfa.jit.entradas, por
+ * defecto 1024), porque cada clave retiene su árbol. Se puede usar desde
+ * varios hilos.
+ */
+public final class EvaluadorJit implements Evaluador {
+
+    /** Evaluaciones de la misma estructura antes de compilarlo (-Dlfa.jit.reuso, por defecto 3). */
+    public static final String PROPIEDAD_REUSO = "lfa.jit.reuso";
+    /** Cantidad de nodos a partir de la cual se compila en la primera evaluación (-Dlfa.jit.tamano, por defecto 2000). */
+    public static final String PROPIEDAD_TAMANO = "lfa.jit.tamano";
+    /** Estructuras recordadas como máximo, contadas o compiladas (-Dlfa.jit.entradas, por defecto 1024). */
+    public static final String PROPIEDAD_ENTRADAS = "lfa.jit.entradas";
+
+    private final int reuso;
+    private final long tamano;
+    private final Map<ClaveEstructural, Entrada> entradas;
+
+    /** Estado de un árbol: veces evaluado y, una vez compilado, su código. */
+    private static final class Entrada {
+        int usos;
+        DoubleSupplier compilado;
+        boolean sinJit; // Jit no pudo compilarlo: siempre recorrido del árbol
+    }
+
+    public EvaluadorJit(int reuso, long tamano) {
+        this(reuso, tamano, 1024);
+    }
+
+    public EvaluadorJit(int reuso, long tamano, int capacidad) {
+        this.reuso = Math.max(0, reuso);
+        this.tamano = Math.max(0, tamano);
+        int tope = Math.max(1, capacidad);
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ClaveEstructural, Entrada> e) {
+                return size() > tope;
+            }
+        };
+    }
+
+    /**
+     * Instancia con los umbrales de las propiedades de sistema, la misma para
+     * todo el proceso: así los documentos de un lote y las peticiones del
+     * servidor comparten lo compilado.
+     */
+    public static EvaluadorJit configurado() {
+        return Compartido.INSTANCIA;
+    }
+
+    private static final class Compartido {
+        static final EvaluadorJit INSTANCIA = new EvaluadorJit((int) propiedad(PROPIEDAD_REUSO, 3),
+                propiedad(PROPIEDAD_TAMANO, 2000), (int) propiedad(PROPIEDAD_ENTRADAS, 1024));
+    }
+
+    private static long propiedad(String nombre, long defecto) {
+        try {
+            return Long.parseLong(System.getProperty(nombre, String.valueOf(defecto)).trim());
+        } catch (NumberFormatException e) {
+            return defecto;
+        }
+    }
+
+    @Override
+    public double evaluar(Node raiz) {
+        DoubleSupplier codigo = compiladoPara(raiz);
+        return codigo != null ? codigo.getAsDouble() : raiz.evaluate();
+    }
+
+    private DoubleSupplier compiladoPara(Node raiz) {
+        if (!(raiz instanceof Op op)) {
+            return null; // una hoja no gana nada compilada
+        }
+        ClaveEstructural clave = new ClaveEstructural(op);
+        Entrada e;
+        synchronized (entradas) {
+            e = entradas.computeIfAbsent(clave, k -> new Entrada());
+            if (e.compilado != null || e.sinJit) {
+                return e.compilado;
+            }
+            e.usos++;
+            if (e.usos <= reuso && !alcanzaTamano(raiz)) {
+                return null;
+            }
+        }
+        // Compilar fuera del candado; si dos hilos compilan a la vez gana el primero
+        DoubleSupplier nuevo = Jit.generar(Compilador.compilar(raiz));
+        synchronized (entradas) {
+            if (e.compilado == null) {
+                e.compilado = nuevo;
+                e.sinJit = nuevo == null;
+            }
+            return e.compilado;
+        }
+    }
+
+    /** true si el árbol tiene al menos 'tamano' nodos (corta apenas lo alcanza). */
+    private boolean alcanzaTamano(Node raiz) {
+        long k = 0;
+        ArrayDeque<Node> pila = new ArrayDeque<>();
+        pila.push(raiz);
+        while (!pila.isEmpty()) {
+            if (++k >= tamano) {
+                return true;
+            }
+            if (pila.pop() instanceof Op op) {
+                for (Node h : op.getHijos()) pila.push(h);
+            }
+        }
+        return false;
+    }
+}
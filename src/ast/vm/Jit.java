@@ -0,0 +1,279 @@
+package ast.vm;
+
+import ast.Node;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Traduce un Programa postfijo a bytecode JVM y lo carga como clase oculta
+ * (Lookup.defineHiddenClass) que implementa DoubleSupplier. El método
+ * getAsDouble() queda como código en línea recta (dadd/dmul/Math.pow/...), así
+ * HotSpot puede compilar la expresión completa. Los chequeos con error llaman
+ * a los mismos métodos estáticos que la VM (Programa.dividir, ...).
+ *
+ * Sin dependencias externas: el archivo .class se escribe a mano. Devuelve
+ * null si el programa no cabe en un método (64 KiB de código o del pool de
+ * constantes); el llamador debe usar otro evaluador.
+ */
+public final class Jit {
+
+    private static final String PROGRAMA = "ast/vm/Programa";
+    private static final String NODE = "ast/Node";
+    private static final int MAX_CODIGO = 65535;
+    private static final int MAX_POOL = 65535;
+
+    private Jit() {
+    }
+
+    /** Genera y carga la clase; null si el programa es demasiado grande. */
+    public static DoubleSupplier generar(Programa p) {
+        byte[] clase = escribirClase(p);
+        if (clase == null) {
+            return null;
+        }
+        try {
+            MethodHandles.Lookup oculta = MethodHandles.lookup().defineHiddenClass(clase, true);
+            MethodHandle ctor = oculta.findConstructor(oculta.lookupClass(),
+                    MethodType.methodType(void.class, Node[].class));
+            return (DoubleSupplier) ctor.invoke(p.nodos());
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("No se pudo cargar la expresión generada", e);
+        }
+    }
+
+    // ===================== escritura del .class =====================
+
+    private static byte[] escribirClase(Programa p) {
+        Pool pool = new Pool();
+        int esta = pool.clase("ast/vm/Expresion");
+        int object = pool.clase("java/lang/Object");
+        int supplier = pool.clase("java/util/function/DoubleSupplier");
+        int campoNodos = pool.campo("ast/vm/Expresion", "nodos", "[L" + NODE + ";");
+        int objectInit = pool.metodo("java/lang/Object", "<init>", "()V");
+
+        byte[] codigo = escribirCodigo(p, pool, campoNodos);
+        if (codigo == null) {
+            return null;
+        }
+        int nombreCodigo = pool.utf8("Code");
+        int nombreNodos = pool.utf8("nodos");
+        int tipoNodos = pool.utf8("[L" + NODE + ";");
+        int nombreInit = pool.utf8("<init>");
+        int tipoInit = pool.utf8("([L" + NODE + ";)V");
+        int nombreGet = pool.utf8("getAsDouble");
+        int tipoGet = pool.utf8("()D");
+        if (pool.cantidad() >= MAX_POOL) {
+            return null;
+        }
+
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(codigo.length + 512);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(52); // sin saltos: no hacen falta StackMapTable
+            pool.escribir(out);
+            out.writeShort(0x0031); // public final super
+            out.writeShort(esta);
+            out.writeShort(object);
+            out.writeShort(1);
+            out.writeShort(supplier);
+
+            // private final Node[] nodos;
+            out.writeShort(1);
+            out.writeShort(0x0012);
+            out.writeShort(nombreNodos);
+            out.writeShort(tipoNodos);
+            out.writeShort(0);
+
+            out.writeShort(2);
+            // <init>(Node[]): super(); this.nodos = nodos;
+            byte[] init = {
+                0x2a,                                                       // aload_0
+                (byte) 0xb7, (byte) (objectInit >> 8), (byte) objectInit,   // invokespecial Object.<init>
+                0x2a, 0x2b,                                                 // aload_0, aload_1
+                (byte) 0xb5, (byte) (campoNodos >> 8), (byte) campoNodos,   // putfield nodos
+                (byte) 0xb1                                                 // return
+            };
+            escribirMetodo(out, 0x0001, nombreInit, tipoInit, nombreCodigo, 2, 2, init);
+            // double getAsDouble()
+            escribirMetodo(out, 0x0001, nombreGet, tipoGet, nombreCodigo, 2 * p.maxPila() + 2, 1, codigo);
+
+            out.writeShort(0); // atributos de la clase
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void escribirMetodo(DataOutputStream out, int acceso, int nombre, int descriptor,
+            int nombreCodigo, int maxStack, int maxLocals, byte[] codigo) throws IOException {
+        out.writeShort(acceso);
+        out.writeShort(nombre);
+        out.writeShort(descriptor);
+        out.writeShort(1);
+        out.writeShort(nombreCodigo);
+        out.writeInt(12 + codigo.length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(codigo.length);
+        out.write(codigo);
+        out.writeShort(0); // tabla de excepciones
+        out.writeShort(0); // atributos del Code
+    }
+
+    /** Cuerpo de getAsDouble(): una instrucción JVM (o pocas) por instrucción postfija. */
+    private static byte[] escribirCodigo(Programa p, Pool pool, int campoNodos) {
+        int[] code = p.codigo();
+        double[] constantes = p.constantes();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(code.length * 3 + 1);
+        int pc = 0;
+        while (pc < code.length) {
+            switch (code[pc++]) {
+                case Programa.CONST -> {
+                    double v = constantes[code[pc++]];
+                    if (Double.doubleToRawLongBits(v) == 0L) {
+                        out.write(0x0e); // dconst_0
+                    } else if (v == 1.0) {
+                        out.write(0x0f); // dconst_1
+                    } else {
+                        u1u2(out, 0x14, pool.doble(v)); // ldc2_w
+                    }
+                }
+                case Programa.SUMAR -> out.write(0x63);        // dadd
+                case Programa.RESTAR -> out.write(0x67);       // dsub
+                case Programa.MULTIPLICAR -> out.write(0x6b);  // dmul
+                case Programa.DIVIDIR -> u1u2(out, 0xb8, pool.metodo(PROGRAMA, "dividir", "(DD)D"));
+                case Programa.POTENCIA -> u1u2(out, 0xb8, pool.metodo("java/lang/Math", "pow", "(DD)D"));
+                case Programa.RAIZ -> u1u2(out, 0xb8, pool.metodo(PROGRAMA, "raiz", "(DD)D"));
+                case Programa.RAIZ_CUADRADA -> u1u2(out, 0xb8, pool.metodo(PROGRAMA, "raizCuadrada", "(D)D"));
+                case Programa.INVERSO -> u1u2(out, 0xb8, pool.metodo(PROGRAMA, "inverso", "(D)D"));
+                case Programa.MOD -> u1u2(out, 0xb8, pool.metodo(PROGRAMA, "mod", "(DD)D"));
+                case Programa.ARIDAD -> {
+                    u1u2(out, 0x13, pool.texto(p.mensajes()[code[pc++]])); // ldc_w
+                    u1u2(out, 0xb8, pool.metodo(PROGRAMA, "aridad", "(Ljava/lang/String;)D"));
+                }
+                case Programa.NODO -> {
+                    int k = code[pc++];
+                    if (k > Short.MAX_VALUE) {
+                        return null;
+                    }
+                    out.write(0x2a);                    // aload_0
+                    u1u2(out, 0xb4, campoNodos);        // getfield nodos
+                    u1u2(out, 0x11, k);                 // sipush k
+                    out.write(0x32);                    // aaload
+                    u1u2(out, 0xb9, pool.metodoInterfaz(NODE, "evaluate", "()D"));
+                    out.write(1);                       // invokeinterface: count, 0
+                    out.write(0);
+                }
+                default -> throw new IllegalStateException("Opcode inválido: " + code[pc - 1]);
+            }
+            if (out.size() > MAX_CODIGO - 1 || pool.cantidad() >= MAX_POOL) {
+                return null;
+            }
+        }
+        out.write(0xaf); // dreturn
+        return out.toByteArray();
+    }
+
+    private static void u1u2(ByteArrayOutputStream out, int op, int indice) {
+        out.write(op);
+        out.write(indice >> 8);
+        out.write(indice);
+    }
+
+    /** Pool de constantes con deduplicación. */
+    private static final class Pool {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private final Map<String, Integer> indices = new HashMap<>();
+        private int siguiente = 1;
+
+        int cantidad() {
+            return siguiente;
+        }
+
+        int utf8(String s) {
+            return entrada("U" + s, 1, () -> out.writeUTF(s));
+        }
+
+        int clase(String nombreInterno) {
+            int n = utf8(nombreInterno);
+            return entrada("C" + nombreInterno, 7, () -> out.writeShort(n));
+        }
+
+        int texto(String s) {
+            int n = utf8(s);
+            return entrada("S" + s, 8, () -> out.writeShort(n));
+        }
+
+        int doble(double v) {
+            long bits = Double.doubleToRawLongBits(v);
+            int i = entrada("D" + bits, 6, () -> out.writeLong(bits));
+            if (i == siguiente - 1) {
+                siguiente++; // double ocupa dos posiciones
+            }
+            return i;
+        }
+
+        int campo(String clase, String nombre, String desc) {
+            return referencia(9, clase, nombre, desc);
+        }
+
+        int metodo(String clase, String nombre, String desc) {
+            return referencia(10, clase, nombre, desc);
+        }
+
+        int metodoInterfaz(String clase, String nombre, String desc) {
+            return referencia(11, clase, nombre, desc);
+        }
+
+        private int referencia(int tag, String clase, String nombre, String desc) {
+            int c = clase(clase);
+            int n = utf8(nombre);
+            int d = utf8(desc);
+            int nt = entrada("N" + nombre + ":" + desc, 12, () -> {
+                out.writeShort(n);
+                out.writeShort(d);
+            });
+            return entrada("R" + tag + clase + "." + nombre + desc, tag, () -> {
+                out.writeShort(c);
+                out.writeShort(nt);
+            });
+        }
+
+        private interface Cuerpo {
+            void escribir() throws IOException;
+        }
+
+        private int entrada(String clave, int tag, Cuerpo cuerpo) {
+            Integer i = indices.get(clave);
+            if (i != null) {
+                return i;
+            }
+            try {
+                out.writeByte(tag);
+                cuerpo.escribir();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            indices.put(clave, siguiente);
+            return siguiente++;
+        }
+
+        void escribir(DataOutputStream destino) throws IOException {
+            destino.writeShort(siguiente);
+            bytes.writeTo(destino);
+        }
+    }
+}
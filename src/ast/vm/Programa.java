@@ -0,0 +1,153 @@
+package ast.vm;
+
+import ast.Node;
+
+/**
+ * AST compilado a código postfijo: un arreglo de instrucciones int[] (opcode,
+ * y para CONST/ARIDAD/NODO un operando a continuación), la tabla de
+ * constantes double[] y la profundidad máxima de pila. Es inmutable, así que
+ * puede ejecutarse desde varios hilos a la vez.
+ */
+public final class Programa {
+
+    // ===== Opcodes =====
+    static final int CONST = 0;       // operando: índice en constantes
+    static final int SUMAR = 1;
+    static final int RESTAR = 2;
+    static final int MULTIPLICAR = 3;
+    static final int DIVIDIR = 4;     // falla si el divisor es 0
+    static final int POTENCIA = 5;
+    static final int RAIZ = 6;        // (grado, radicando)
+    static final int RAIZ_CUADRADA = 7;
+    static final int INVERSO = 8;
+    static final int MOD = 9;
+    static final int ARIDAD = 10;     // operando: índice en mensajes; lanza IllegalArgumentException
+    static final int NODO = 11;       // operando: índice en nodos; delega en Node.evaluate()
+
+    private final int[] codigo;
+    private final double[] constantes;
+    private final String[] mensajes;
+    private final Node[] nodos;
+    private final int maxPila;
+
+    Programa(int[] codigo, double[] constantes, String[] mensajes, Node[] nodos, int maxPila) {
+        this.codigo = codigo;
+        this.constantes = constantes;
+        this.mensajes = mensajes;
+        this.nodos = nodos;
+        this.maxPila = maxPila;
+    }
+
+    /** Cantidad de ints de código (para estadísticas / umbrales). */
+    public int longitud() {
+        return codigo.length;
+    }
+
+    /**
+     * Ejecuta el programa sobre una pila double[] propia. Los chequeos van en
+     * el mismo orden que en las clases de ast.ops, así que los errores
+     * (ArithmeticException / aridad) son los mismos que con evaluate().
+     */
+    public double ejecutar() {
+        final int[] code = codigo;
+        final double[] pila = new double[maxPila];
+        int sp = 0;
+        int pc = 0;
+        while (pc < code.length) {
+            switch (code[pc++]) {
+                case CONST -> pila[sp++] = constantes[code[pc++]];
+                case SUMAR -> {
+                    sp--;
+                    pila[sp - 1] += pila[sp];
+                }
+                case RESTAR -> {
+                    sp--;
+                    pila[sp - 1] -= pila[sp];
+                }
+                case MULTIPLICAR -> {
+                    sp--;
+                    pila[sp - 1] *= pila[sp];
+                }
+                case DIVIDIR -> {
+                    double d = pila[--sp];
+                    pila[sp - 1] = dividir(pila[sp - 1], d);
+                }
+                case POTENCIA -> {
+                    double exp = pila[--sp];
+                    pila[sp - 1] = Math.pow(pila[sp - 1], exp);
+                }
+                case RAIZ -> {
+                    double x = pila[--sp];
+                    pila[sp - 1] = raiz(pila[sp - 1], x);
+                }
+                case RAIZ_CUADRADA -> pila[sp - 1] = raizCuadrada(pila[sp - 1]);
+                case INVERSO -> pila[sp - 1] = inverso(pila[sp - 1]);
+                case MOD -> {
+                    double b = pila[--sp];
+                    pila[sp - 1] = mod(pila[sp - 1], b);
+                }
+                case ARIDAD -> aridad(mensajes[code[pc]]);
+                case NODO -> pila[sp++] = nodos[code[pc++]].evaluate();
+                default -> throw new IllegalStateException("Opcode inválido: " + code[pc - 1]);
+            }
+        }
+        return pila[0];
+    }
+
+    // ===== Operaciones con chequeo (las usan la VM y el código generado por Jit) =====
+
+    static double dividir(double acc, double d) {
+        if (d == 0.0) throw new ArithmeticException("DIVISION por cero");
+        return acc / d;
+    }
+
+    static double raiz(double grado, double x) {
+        if (grado == 0) throw new ArithmeticException("RAIZ con grado 0");
+        if (x < 0 && (Math.floor(grado) == grado) && (((int) grado) % 2 == 0)) {
+            throw new ArithmeticException("RAIZ par de negativo");
+        }
+        return Math.pow(x, 1.0 / grado);
+    }
+
+    static double raizCuadrada(double x) {
+        if (x < 0) throw new ArithmeticException("RAIZ de negativo");
+        return Math.sqrt(x);
+    }
+
+    static double inverso(double x) {
+        if (x == 0.0) throw new ArithmeticException("INVERSO de 0");
+        return 1.0 / x;
+    }
+
+    static double mod(double a, double b) {
+        if (b == 0.0) throw new ArithmeticException("MOD por 0");
+        return a % b;
+    }
+
+    /** Lanza el error de aridad; el tipo de retorno solo sirve para el código generado. */
+    static double aridad(String mensaje) {
+        throw new IllegalArgumentException(mensaje);
+    }
+
+    // ===== Acceso de solo lectura para Jit =====
+
+    int[] codigo() {
+        return codigo;
+    }
+
+    double[] constantes() {
+        return constantes;
+    }
+
+    String[] mensajes() {
+        return mensajes;
+    }
+
+    Node[] nodos() {
+        return nodos;
+    }
+
+    int maxPila() {
+        return maxPila;
+    }
+}
@@ -0,0 +1,110 @@
+package lexer;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Secuencia de tokens empaquetada en arreglos primitivos: tipo, inicio y fin
+ * del lexema, y línea/columna (un long). Los lexemas variables (números,
+ * nombre de operación, errores) se copian a un único char[]; los de texto fijo
+ * ("</Numero>", ...) no se guardan. Llenarla con Lexer.escanear() no crea
+ * objetos por token; el String de un lexema se arma recién cuando alguien lo
+ * pide con lexema(i).
+ *
+ * El parser lo lee por índice (Parser.deBuffer); comoLista() adapta el
+ * buffer a List<Token> para el código que todavía espera tokens (crea cada
+ * Token al pedirlo).
+ */
+public final class BufferTokens {
+    private static final TokenType[] TIPOS = TokenType.values();
+
+    private byte[] tipos = new byte[1024];
+    private int[] inicios = new int[1024];
+    private int[] fines = new int[1024];
+    private long[] posiciones = new long[1024]; // línea << 32 | columna
+    private int n = 0;
+
+    private char[] texto = new char[4096];
+    private int largoTexto = 0;
+
+    /** Agrega el token que el Lexer acaba de escanear. */
+    public void agregar(Lexer lx, TokenType t) {
+        if (n == tipos.length) {
+            int c = n * 2;
+            tipos = Arrays.copyOf(tipos, c);
+            inicios = Arrays.copyOf(inicios, c);
+            fines = Arrays.copyOf(fines, c);
+            posiciones = Arrays.copyOf(posiciones, c);
+        }
+        tipos[n] = (byte) t.ordinal();
+        posiciones[n] = ((long) lx.lineaToken() << 32) | (lx.columnaToken() & 0xFFFFFFFFL);
+        inicios[n] = largoTexto;
+        if (Lexer.lexemaFijo(t) == null) {
+            int k = lx.lexemaLargo();
+            if (largoTexto + k > texto.length) {
+                texto = Arrays.copyOf(texto, Math.max(texto.length * 2, largoTexto + k));
+            }
+            System.arraycopy(lx.lexemaChars(), 0, texto, largoTexto, k);
+            largoTexto += k;
+        }
+        fines[n] = largoTexto;
+        n++;
+    }
+
+    /** Escanea 'lx' hasta EOF (sin incluirlo) y devuelve el buffer. */
+    public static BufferTokens leer(Lexer lx) {
+        BufferTokens b = new BufferTokens();
+        for (TokenType t; (t = lx.escanear()) != TokenType.EOF; ) {
+            b.agregar(lx, t);
+        }
+        return b;
+    }
+
+    public int size() {
+        return n;
+    }
+
+    public TokenType tipo(int i) {
+        return TIPOS[tipos[Objects.checkIndex(i, n)]];
+    }
+
+    public int linea(int i) {
+        return (int) (posiciones[Objects.checkIndex(i, n)] >>> 32);
+    }
+
+    public int columna(int i) {
+        return (int) posiciones[Objects.checkIndex(i, n)];
+    }
+
+    /** Largo del lexema sin construirlo. */
+    public int largoLexema(int i) {
+        String fijo = Lexer.lexemaFijo(tipo(i));
+        return fijo != null ? fijo.length() : fines[i] - inicios[i];
+    }
+
+    public String lexema(int i) {
+        String fijo = Lexer.lexemaFijo(tipo(i));
+        return fijo != null ? fijo : new String(texto, inicios[i], fines[i] - inicios[i]);
+    }
+
+    public Token token(int i) {
+        return new Token(tipo(i), lexema(i), linea(i), columna(i));
+    }
+
+    /** Vista List<Token> (solo lectura); cada get() crea el Token. */
+    public List<Token> comoLista() {
+        return new AbstractList<>() {
+            @Override
+            public Token get(int i) {
+                return token(i);
+            }
+
+            @Override
+            public int size() {
+                return n;
+            }
+        };
+    }
+}
@@ -0,0 +1,47 @@
+package lexer;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Origen de caracteres del Lexer. peek() devuelve '\0' al final del texto,
+ * igual que hacía el Lexer con el String completo.
+ */
+interface Fuente extends Closeable {
+    char peek();
+    void avanzar();
+
+    /**
+     * Salta una racha de espacios, tabs, '\r' y '\n' desde la posición actual
+     * y devuelve (saltos de línea << 32) | caracteres después del último
+     * salto (o todos, si no hubo). 0 si el carácter actual no es blanco. Puede
+     * parar antes del final de la racha (el Lexer la llama hasta que da 0).
+     *
+     * Esta versión carácter a carácter es la referencia; las fuentes pueden
+     * redefinirla con algo más rápido mientras el resultado sea el mismo.
+     */
+    default long saltarBlancos() {
+        long lineas = 0;
+        long resto = 0;
+        for (int n = 0; n < MAX_BLANCOS; n++) {
+            char c = peek();
+            if (c == '\n') {
+                lineas++;
+                resto = 0;
+            } else if (c == ' ' || c == '\t' || c == '\r') {
+                resto++;
+            } else {
+                break;
+            }
+            avanzar();
+        }
+        return (lineas << 32) | resto;
+    }
+
+    /** Tope de caracteres por llamada a saltarBlancos() (los contadores caben en un int). */
+    int MAX_BLANCOS = 1 << 24;
+
+    @Override
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,216 @@
+package lexer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Fuente que lee bytes UTF-8 de un canal (bloqueante) a través de una ventana
+ * fija de 64 KiB, sin cargar el archivo completo: la memoria no depende del
+ * tamaño de la entrada.
+ *
+ * El formato del proyecto es ASCII y se resuelve byte a byte. Cualquier otro
+ * byte se decodifica igual que new String(bytes, UTF_8) (incluidos los U+FFFD
+ * de secuencias inválidas y los pares sustitutos), para que los errores
+ * léxicos salgan con el mismo lexema y la misma columna que con un String.
+ *
+ * saltarBlancos() recorre la ventana de a 8 bytes (SWAR sobre un long): una
+ * máscara marca los bytes blancos, el primer byte que no lo es sale de
+ * numberOfTrailingZeros y los '\n' del bloque se cuentan con bitCount.
+ */
+final class FuenteCanal implements Fuente {
+    static final int VENTANA = 1 << 16;
+    private static final char REPL = '�';
+
+    private final ReadableByteChannel canal;
+    private final ByteBuffer buf = ByteBuffer.allocate(VENTANA).order(ByteOrder.LITTLE_ENDIAN); // byte i = bits 8i..8i+7
+    private boolean finCanal = false;
+
+    private char actual;
+    private boolean listo = false;
+    private char bajoPendiente = 0; // 2a mitad de un par sustituto (fuera del BMP)
+
+    FuenteCanal(ReadableByteChannel canal) {
+        this.canal = canal;
+        buf.flip(); // ventana vacía
+    }
+
+    @Override
+    public char peek() {
+        if (!listo) {
+            actual = decodificar();
+            listo = true;
+        }
+        return actual;
+    }
+
+    @Override
+    public void avanzar() {
+        peek(); // el carácter actual ya salió de la ventana al decodificarlo
+        listo = false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        canal.close();
+    }
+
+    // ===== Blancos de a 8 bytes =====
+    private static final long UNOS = 0x0101010101010101L;
+    private static final long ALTOS = 0x8080808080808080L;
+    private static final long BAJOS = 0x7F7F7F7F7F7F7F7FL;
+
+    /** Bit alto de cada byte de 'w' igual a 'b' (exacto, sin falsos positivos). */
+    private static long iguales(long w, int b) {
+        long x = w ^ (UNOS * b);
+        return ~(((x & BAJOS) + BAJOS) | x | BAJOS);
+    }
+
+    @Override
+    public long saltarBlancos() {
+        long lineas = 0;
+        long resto = 0;
+        // Un carácter ya decodificado (o la 2a mitad de un par) se resuelve como siempre
+        if (listo || bajoPendiente != 0) {
+            char c = peek();
+            if (c == '\n') {
+                lineas = 1;
+            } else if (c == ' ' || c == '\t' || c == '\r') {
+                resto = 1;
+            } else {
+                return 0;
+            }
+            avanzar();
+        }
+        int tope = MAX_BLANCOS;
+        while (tope > 0) {
+            if (buf.remaining() < 8) {
+                if (!finCanal) rellenar();
+                if (buf.remaining() < 8) break;
+            }
+            int p = buf.position();
+            long w = buf.getLong(p);
+            long nl = iguales(w, '\n');
+            long blancos = nl | iguales(w, ' ') | iguales(w, '\t') | iguales(w, '\r');
+            long otros = ~blancos & ALTOS;
+            int n = otros == 0 ? 8 : Long.numberOfTrailingZeros(otros) >>> 3;
+            if (n < 8) nl &= (1L << (n * 8)) - 1; // solo los bytes saltados
+            if (nl != 0) {
+                lineas += Long.bitCount(nl);
+                resto = n - 1 - ((63 - Long.numberOfLeadingZeros(nl)) >>> 3);
+            } else {
+                resto += n;
+            }
+            buf.position(p + n);
+            tope -= n;
+            if (n < 8) return (lineas << 32) | resto;
+        }
+        // Cola de la entrada (menos de 8 bytes): carácter a carácter
+        long r = tope > 0 ? Fuente.super.saltarBlancos() : 0;
+        if (r >>> 32 != 0) {
+            return ((lineas + (r >>> 32)) << 32) | (r & 0xFFFFFFFFL);
+        }
+        return (lineas << 32) | (resto + r);
+    }
+
+    private char decodificar() {
+        if (bajoPendiente != 0) {
+            char c = bajoPendiente;
+            bajoPendiente = 0;
+            return c;
+        }
+        // Una secuencia UTF-8 ocupa a lo sumo 4 bytes: con menos en la ventana, rellenar
+        if (buf.remaining() < 4 && !finCanal) rellenar();
+        if (!buf.hasRemaining()) return '\0';
+
+        int b1 = buf.get() & 0xFF;
+        if (b1 < 0x80) return (char) b1;
+        return multibyte(b1);
+    }
+
+    private void rellenar() {
+        buf.compact();
+        try {
+            while (buf.hasRemaining()) {
+                if (canal.read(buf) < 0) {
+                    finCanal = true;
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            buf.flip();
+        }
+    }
+
+    // ===== UTF-8 → UTF-16 con las mismas reglas de reemplazo que String =====
+    // Tras rellenar(), si quedan menos bytes de los que pide la secuencia es
+    // porque se terminó la entrada (secuencia truncada al final).
+
+    private char multibyte(int b1) {
+        if (b1 >= 0xC2 && b1 <= 0xDF) {
+            if (!buf.hasRemaining()) return REPL;
+            int b2 = sig(0);
+            if (!cont(b2)) return REPL;
+            buf.get();
+            return (char) (((b1 & 0x1F) << 6) | (b2 & 0x3F));
+        }
+        if (b1 >= 0xE0 && b1 <= 0xEF) {
+            if (buf.remaining() >= 2) {
+                int b2 = sig(0), b3 = sig(1);
+                if ((b1 == 0xE0 && (b2 & 0xE0) == 0x80) || !cont(b2)) return REPL;
+                if (!cont(b3)) {
+                    buf.get(); // b2 era válido: se reemplaza junto con b1
+                    return REPL;
+                }
+                buf.position(buf.position() + 2);
+                char c = (char) (((b1 & 0x0F) << 12) | ((b2 & 0x3F) << 6) | (b3 & 0x3F));
+                return Character.isSurrogate(c) ? REPL : c;
+            }
+            if (buf.hasRemaining()) {
+                int b2 = sig(0);
+                if ((b1 == 0xE0 && (b2 & 0xE0) == 0x80) || !cont(b2)) return REPL;
+            }
+            return truncadoAlFinal();
+        }
+        if (b1 >= 0xF0 && b1 <= 0xF7) {
+            if (buf.remaining() >= 3) {
+                int b2 = sig(0), b3 = sig(1), b4 = sig(2);
+                int uc = ((b1 & 0x07) << 18) | ((b2 & 0x3F) << 12) | ((b3 & 0x3F) << 6) | (b4 & 0x3F);
+                if (!cont(b2) || !cont(b3) || !cont(b4) || !Character.isSupplementaryCodePoint(uc)) {
+                    if (malformado4(b1, b2)) return REPL;
+                    buf.position(buf.position() + (cont(b3) ? 2 : 1));
+                    return REPL;
+                }
+                buf.position(buf.position() + 3);
+                bajoPendiente = Character.lowSurrogate(uc);
+                return Character.highSurrogate(uc);
+            }
+            if (b1 > 0xF4 || (buf.hasRemaining() && malformado4(b1, sig(0)))) return REPL;
+            if (buf.hasRemaining()) buf.get();
+            if (buf.hasRemaining() && !cont(sig(0))) return REPL;
+            return truncadoAlFinal();
+        }
+        return REPL;
+    }
+
+    private static boolean malformado4(int b1, int b2) {
+        return b1 > 0xF4
+                || (b1 == 0xF0 && (b2 < 0x90 || b2 > 0xBF))
+                || (b1 == 0xF4 && (b2 & 0xF0) != 0x80)
+                || !cont(b2);
+    }
+
+    /** String descarta el resto de una secuencia truncada al final del texto. */
+    private char truncadoAlFinal() {
+        buf.position(buf.limit());
+        return REPL;
+    }
+
+    private int sig(int k) { return buf.get(buf.position() + k) & 0xFF; }
+
+    private static boolean cont(int b) { return (b & 0xC0) == 0x80; }
+}
@@ -0,0 +1,36 @@
+package lexer;
+
+/** Fuente sobre un String ya cargado (editor, pruebas, archivos pequeños). */
+final class FuenteTexto implements Fuente {
+    private final String input;
+    private int idx = 0;
+
+    FuenteTexto(String input) { this.input = input; }
+
+    @Override
+    public char peek() { return idx < input.length() ? input.charAt(idx) : '\0'; }
+
+    @Override
+    public void avanzar() { idx++; }
+
+    // Igual que la versión de Fuente pero sin pasar por peek()/avanzar() (un String no da acceso a bytes para SWAR)
+    @Override
+    public long saltarBlancos() {
+        final String s = input;
+        int i = idx, fin = Math.min(s.length(), idx + MAX_BLANCOS);
+        long lineas = 0;
+        int ultimo = i; // posición después del último '\n'
+        for (; i < fin; i++) {
+            char c = s.charAt(i);
+            if (c == '\n') {
+                lineas++;
+                ultimo = i + 1;
+            } else if (c != ' ' && c != '\t' && c != '\r') {
+                break;
+            }
+        }
+        long resto = i - ultimo;
+        idx = i;
+        return (lineas << 32) | resto;
+    }
+}
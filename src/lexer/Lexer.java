@@ -1,13 +1,21 @@
 package lexer;
 
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 
-public class Lexer {
-    private final String input;
-    private int idx = 0, line = 1, col = 1;
+public class Lexer implements Closeable {
+    private final Fuente fuente;
+    private int line = 1, col = 1;
+
+    /** Propiedad de sistema: "true" salta los blancos por bloques (Fuente.saltarBlancos) en vez de uno a uno. */
+    public static final String PROPIEDAD_BLOQUES = "lfa.lexer.bloques";
+    private boolean porBloques = Boolean.getBoolean(PROPIEDAD_BLOQUES);
 
     public static class LexError {
         public final String lexema;
@@ -19,16 +27,44 @@ public class Lexer {
 
     public final List<LexError> errores = new ArrayList<>();
 
-    public Lexer(String input) { this.input = input; }
+    public Lexer(String input) { this.fuente = new FuenteTexto(input); }
+
+    /**
+     * Lexer sobre un canal de bytes UTF-8 (p. ej. un FileChannel). Lee por
+     * ventanas de tamaño fijo, así que la memoria no crece con la entrada.
+     */
+    public Lexer(ReadableByteChannel canal) { this.fuente = new FuenteCanal(canal); }
 
-    private char peek() { return idx < input.length() ? input.charAt(idx) : '\0'; }
+    /** Abre un archivo en modo streaming; cerrar el Lexer cierra el archivo. */
+    public static Lexer abrir(Path ruta) throws IOException {
+        return new Lexer(FileChannel.open(ruta, StandardOpenOption.READ));
+    }
+
+    /** Activa o desactiva el salto de blancos por bloques (por defecto, según PROPIEDAD_BLOQUES). */
+    public Lexer conBloques(boolean activar) {
+        this.porBloques = activar;
+        return this;
+    }
+
+    @Override
+    public void close() throws IOException { fuente.close(); }
+
+    private char peek() { return fuente.peek(); }
     private char advance() {
-        char c = peek(); idx++;
+        char c = peek(); fuente.avanzar();
         if (c == '\n') { line++; col = 1; } else { col++; }
         return c;
     }
 
     private void skipWS() {
+        if (porBloques) {
+            // Misma línea/columna que el recorrido de abajo, que queda como referencia
+            for (long r; (r = fuente.saltarBlancos()) != 0; ) {
+                int lineas = (int) (r >>> 32), resto = (int) r;
+                if (lineas > 0) { line += lineas; col = 1 + resto; } else { col += resto; }
+            }
+            return;
+        }
         while (true) {
             char c = peek();
             if (c == ' ' || c == '\t' || c == '\r' || c == '\n') {
@@ -37,136 +73,117 @@ public class Lexer {
         }
     }
 
-    private static boolean isAZ(char c) { return (c >= 'A' && c <= 'Z'); }
-    private static boolean isaz(char c) { return (c >= 'a' && c <= 'z'); }
-    private static boolean isLetter(char c){ return isAZ(c) || isaz(c); }
-    private static boolean isDigit(char c){ return c >= '0' && c <= '9'; }
-
-    private String readWhile(java.util.function.Predicate<Character> p) {
-        StringBuilder sb = new StringBuilder();
-        while (p.test(peek())) sb.append(advance());
-        return sb.toString();
+    // ===== Token actual (lo llena escanear(); sin objetos por token) =====
+    private int tokLinea, tokColumna;
+    private char[] lex = new char[64];   // lexema de NUMERO / ABRIROPERACION / ERROR
+    private int lexLen;
+
+    /** Lexema de los tipos con texto fijo (índice = ordinal de TokenType). */
+    private static final String[] FIJOS = new String[TokenType.values().length];
+    static {
+        FIJOS[TokenType.CERRAROPERACION.ordinal()] = "</Operacion>";
+        FIJOS[TokenType.ABRIRONUMERO.ordinal()] = "<Numero>";
+        FIJOS[TokenType.CERRARNUMERO.ordinal()] = "</Numero>";
+        FIJOS[TokenType.ABRIRO_P.ordinal()] = "<P>";
+        FIJOS[TokenType.CERRAR_P.ordinal()] = "</P>";
+        FIJOS[TokenType.ABRIRO_R.ordinal()] = "<R>";
+        FIJOS[TokenType.CERRAR_R.ordinal()] = "</R>";
+        FIJOS[TokenType.EOF.ordinal()] = "";
     }
 
-    // Lee un nombre de etiqueta: letras (may/min)
-    private String readTagName() {
-        return readWhile(Lexer::isLetter);
-    }
+    /** Texto fijo del tipo, o null si el lexema depende de la entrada. */
+    static String lexemaFijo(TokenType t) { return FIJOS[t.ordinal()]; }
 
-    // Lee una palabra de operación (SUMA, RESTA, ...)
-    private String readOpWord() {
-        return readWhile(Lexer::isAZ); // el enunciado usa MAYÚSCULAS
+    private void lexAppend(char c) {
+        if (lexLen == lex.length) lex = java.util.Arrays.copyOf(lex, lexLen * 2);
+        lex[lexLen++] = c;
     }
 
-    private Token makeErrorToken(String bad, int sl, int sc) {
-        errores.add(new LexError(bad, sl, sc));
-        return new Token(TokenType.ERROR, bad, sl, sc);
+    private void lexSet(String s) {
+        lexLen = 0;
+        for (int i = 0; i < s.length(); i++) lexAppend(s.charAt(i));
     }
 
-    // <...> o </...>
-    private Token readTag() {
-        int sl = line, sc = col;
-        advance(); // consume '<'
+    private String lexString() { return new String(lex, 0, lexLen); }
 
-        boolean closing = false;
-        if (peek() == '/') { closing = true; advance(); }
+    private TokenType makeErrorToken(String bad, int sl, int sc) {
+        errores.add(new LexError(bad, sl, sc));
+        lexSet(bad);
+        tokLinea = sl; tokColumna = sc;
+        return TokenType.ERROR;
+    }
 
-        // Nombre de etiqueta
-        String tag = readTagName(); // "Operacion", "Numero", "P", "R"
-        if (tag.isEmpty()) {
-            return makeErrorToken("<" + (closing ? "/" : "") + ">", sl, sc);
-        }
+    private TokenType token(TokenType t, int sl, int sc) {
+        tokLinea = sl; tokColumna = sc;
+        return t;
+    }
 
-        // Ignorar espacios dentro de la etiqueta
+    /**
+     * Avanza al siguiente token sin crear objetos (salvo en errores): devuelve
+     * su tipo y deja línea, columna y lexema disponibles en lineaToken(),
+     * columnaToken() y lexemaToken() hasta la próxima llamada.
+     */
+    public TokenType escanear() {
         skipWS();
 
-        if ("Operacion".equals(tag) && !closing) {
-            // Esperamos: = <espacios> PALABRA_MAYUS >   e.g. <Operacion= SUMA>
-            if (peek() != '=') {
-                return makeErrorToken("<Operacion ...> sin '='", sl, sc);
-            }
-            advance(); // '='
-            skipWS();
-            String op = readOpWord();
-            if (op.isEmpty()) {
-                return makeErrorToken("<Operacion= ?> falta operación", sl, sc);
-            }
-            skipWS();
-            if (peek() != '>') {
-                return makeErrorToken("Falta '>' en <Operacion= " + op + ">", sl, sc);
-            }
-            advance(); // '>'
-            // ===== CAMBIO: usar nuevos TokenType =====
-            return new Token(TokenType.ABRIROPERACION, op, sl, sc);
-        } else {
-            // Debe venir '>' inmediatamente (o tras espacios si cierre)
-            skipWS();
-            if (peek() != '>') {
-                return makeErrorToken("Falta '>' en etiqueta <" + (closing?"/":"") + tag + ">", sl, sc);
-            }
-            advance(); // '>'
-
-            if ("Operacion".equals(tag)) {
-                return closing
-                        ? new Token(TokenType.CERRAROPERACION, "</Operacion>", sl, sc)
-                        : makeErrorToken("<Operacion> de apertura requiere '= OP'", sl, sc);
-            } else if ("Numero".equals(tag)) {
-                return closing
-                        ? new Token(TokenType.CERRARNUMERO, "</Numero>", sl, sc)
-                        : new Token(TokenType.ABRIRONUMERO, "<Numero>", sl, sc);
-            } else if ("P".equals(tag)) {
-                return closing
-                        ? new Token(TokenType.CERRAR_P, "</P>", sl, sc)
-                        : new Token(TokenType.ABRIRO_P, "<P>", sl, sc);
-            } else if ("R".equals(tag)) {
-                return closing
-                        ? new Token(TokenType.CERRAR_R, "</R>", sl, sc)
-                        : new Token(TokenType.ABRIRO_R, "<R>", sl, sc);
-            } else {
-                return makeErrorToken("Etiqueta no reconocida: " + tag, sl, sc);
-            }
-        }
-    }
-
-    private Token readNumber() {
         int sl = line, sc = col;
-        StringBuilder sb = new StringBuilder();
+        if (peek() == '\0') return token(TokenType.EOF, sl, sc);
 
-        // parte entera
-        sb.append(readWhile(Lexer::isDigit));
-
-        // fracción opcional
-        if (peek() == '.') {
-            sb.append(advance());
-            if (!isDigit(peek())) {
-                // error: punto sin dígitos después
-                return makeErrorToken(sb.toString(), sl, sc);
+        // Recorre la TablaDFA hasta que no haya transición; el estado final dice qué token es
+        final int[] trans = TablaDFA.TRANS;
+        int estado = TablaDFA.INICIO;
+        lexLen = 0;
+        while (true) {
+            char c = peek();
+            int t = trans[estado * TablaDFA.NCLASES + (c < 128 ? TablaDFA.CLASE[c] : TablaDFA.OTRO)];
+            if (t < 0) break;
+            advance();
+            switch (t >>> 16) {
+                case TablaDFA.GUARDAR -> lexAppend(c);
+                case TablaDFA.REINICIAR -> lexLen = 0;
+                default -> { }
             }
-            sb.append(readWhile(Lexer::isDigit));
+            estado = t & 0xFFFF;
         }
+        return alParar(TablaDFA.AL_PARAR[estado], sl, sc);
+    }
 
-        // ===== CAMBIO: usar NUMERO (nuevo enum) =====
-        return new Token(TokenType.NUMERO, sb.toString(), sl, sc);
+    private static final TokenType[] TIPOS = TokenType.values();
+
+    /** Token (o error, con el mismo mensaje de siempre) según el estado donde paró el DFA. */
+    private TokenType alParar(int codigo, int sl, int sc) {
+        if (codigo >= 0) return token(TIPOS[codigo], sl, sc);
+        return switch (codigo) {
+            case TablaDFA.ERR_ABRE_VACIA -> makeErrorToken("<>", sl, sc);
+            case TablaDFA.ERR_CIERRA_VACIA -> makeErrorToken("</>", sl, sc);
+            case TablaDFA.ERR_SIN_IGUAL -> makeErrorToken("<Operacion ...> sin '='", sl, sc);
+            case TablaDFA.ERR_FALTA_OP -> makeErrorToken("<Operacion= ?> falta operación", sl, sc);
+            case TablaDFA.ERR_FALTA_MAYOR_OP -> makeErrorToken("Falta '>' en <Operacion= " + lexString() + ">", sl, sc);
+            case TablaDFA.ERR_FALTA_MAYOR_ABRE -> makeErrorToken("Falta '>' en etiqueta <" + lexString() + ">", sl, sc);
+            case TablaDFA.ERR_FALTA_MAYOR_CIERRA -> makeErrorToken("Falta '>' en etiqueta </" + lexString() + ">", sl, sc);
+            case TablaDFA.ERR_NO_RECONOCIDA -> makeErrorToken("Etiqueta no reconocida: " + lexString(), sl, sc);
+            default -> makeErrorToken(lexString(), sl, sc); // carácter suelto, "12."
+        };
     }
 
-    public Token next() {
-        skipWS();
+    public int lineaToken() { return tokLinea; }
 
-        int startLine = line, startCol = col;
-        char c = peek();
-        if (c == '\0') return new Token(TokenType.EOF, "", startLine, startCol);
+    public int columnaToken() { return tokColumna; }
 
-        if (c == '<') {
-            return readTag();
-        }
+    /** Lexema del último token escaneado (texto fijo o copia del buffer). */
+    public String lexemaToken(TokenType t) {
+        String fijo = FIJOS[t.ordinal()];
+        return fijo != null ? fijo : lexString();
+    }
 
-        if (isDigit(c)) {
-            return readNumber();
-        }
+    // Para BufferTokens: el lexema sin copiarlo a un String
+    char[] lexemaChars() { return lex; }
 
-        // Cualquier otra cosa es error léxico (consume 1 char para no ciclar)
-        String bad = String.valueOf(advance());
-        return makeErrorToken(bad, startLine, startCol);
+    int lexemaLargo() { return lexLen; }
+
+    public Token next() {
+        TokenType t = escanear();
+        return new Token(t, lexemaToken(t), tokLinea, tokColumna);
     }
 
     // Utilidad para leer archivo
@@ -0,0 +1,218 @@
+package lexer;
+
+import java.util.Arrays;
+
+/**
+ * Autómata del Lexer en forma de tabla (docs/Tabla_Transicciones_DFA.pdf, a
+ * nivel de carácter): clases de carácter en un byte[] y una matriz densa
+ * int[estado * NCLASES + clase] con el estado siguiente y qué hacer con el
+ * carácter consumido. Cuando no hay transición el token termina y AL_PARAR
+ * dice qué es: un TokenType o uno de los errores de siempre.
+ *
+ * Correspondencia con el documento: ABRE/CIERRA son S1/S2, los nombres de
+ * etiqueta se reconocen letra por letra (S4–S10) y los estados *_FIN son los
+ * de aceptación (S12–S18); ENTERO/PUNTO/FRACCION son S3/S11/S19. Además se
+ * modelan los espacios dentro de las etiquetas y los estados de error que el
+ * Lexer ya reportaba, con los mismos mensajes.
+ *
+ * La tabla se genera una sola vez en el inicializador estático.
+ */
+final class TablaDFA {
+
+    // ===== Clases de carácter =====
+    private static final String LETRAS_CLAVE = "OperacionNumPR"; // letras de "Operacion", "Numero", "P", "R"
+    static final int ESPACIO = 0, MENOR = 1, BARRA = 2, MAYOR = 3, IGUAL = 4, PUNTO = 5, DIGITO = 6,
+            MAYUS_OTRA = 7, MINUS_OTRA = 8, NUL = 9, OTRO = 10, PRIMERA_LETRA = 11;
+    static final int NCLASES = PRIMERA_LETRA + LETRAS_CLAVE.length();
+
+    /** Clase de cada carácter ASCII; los demás son OTRO. */
+    static final byte[] CLASE = new byte[128];
+
+    // ===== Acciones sobre el carácter consumido =====
+    static final int CONSUMIR = 0;   // solo avanzar (posición)
+    static final int GUARDAR = 1;    // agregarlo al lexema
+    static final int REINICIAR = 2;  // vaciar el lexema (tras '=' de <Operacion=)
+
+    // ===== Qué es el token al parar en cada estado (>= 0: ordinal de TokenType) =====
+    static final int ERR_LEXEMA = -1;            // el lexema mismo (carácter suelto, "12.")
+    static final int ERR_ABRE_VACIA = -2;        // "<>"
+    static final int ERR_CIERRA_VACIA = -3;      // "</>"
+    static final int ERR_SIN_IGUAL = -4;
+    static final int ERR_FALTA_OP = -5;
+    static final int ERR_FALTA_MAYOR_OP = -6;
+    static final int ERR_FALTA_MAYOR_ABRE = -7;
+    static final int ERR_FALTA_MAYOR_CIERRA = -8;
+    static final int ERR_NO_RECONOCIDA = -9;
+
+    /** (acción << 16) | estado siguiente; -1 = sin transición. */
+    static final int[] TRANS;
+    static final int[] AL_PARAR;
+    static final int INICIO = 0;
+
+    private static int[] trans = new int[64 * NCLASES];
+    private static int[] alParar = new int[64];
+    private static int nEstados = 0;
+
+    static {
+        Arrays.fill(CLASE, (byte) OTRO);
+        CLASE[' '] = CLASE['\t'] = CLASE['\r'] = CLASE['\n'] = ESPACIO;
+        CLASE['<'] = MENOR;
+        CLASE['/'] = BARRA;
+        CLASE['>'] = MAYOR;
+        CLASE['='] = IGUAL;
+        CLASE['.'] = PUNTO;
+        CLASE[0] = NUL;
+        for (char c = '0'; c <= '9'; c++) CLASE[c] = DIGITO;
+        for (char c = 'A'; c <= 'Z'; c++) CLASE[c] = MAYUS_OTRA;
+        for (char c = 'a'; c <= 'z'; c++) CLASE[c] = MINUS_OTRA;
+        for (int i = 0; i < LETRAS_CLAVE.length(); i++) CLASE[LETRAS_CLAVE.charAt(i)] = (byte) (PRIMERA_LETRA + i);
+
+        Arrays.fill(trans, -1);
+        int inicio = nuevo(ERR_LEXEMA);
+
+        // Cualquier carácter que no inicia un token es un error de un carácter
+        int uno = nuevo(ERR_LEXEMA);
+        for (int k = 0; k < NCLASES; k++) {
+            if (k != NUL && k != MENOR && k != DIGITO && k != ESPACIO) t(inicio, k, uno, GUARDAR);
+        }
+
+        // Números: D+ ( '.' D+ )?
+        int entero = nuevo(TokenType.NUMERO.ordinal());
+        int punto = nuevo(ERR_LEXEMA);
+        int fraccion = nuevo(TokenType.NUMERO.ordinal());
+        t(inicio, DIGITO, entero, GUARDAR);
+        t(entero, DIGITO, entero, GUARDAR);
+        t(entero, PUNTO, punto, GUARDAR);
+        t(punto, DIGITO, fraccion, GUARDAR);
+        t(fraccion, DIGITO, fraccion, GUARDAR);
+
+        // Etiquetas
+        int abre = nuevo(ERR_ABRE_VACIA);
+        int cierra = nuevo(ERR_CIERRA_VACIA);
+        t(inicio, MENOR, abre, CONSUMIR);
+        t(abre, BARRA, cierra, CONSUMIR);
+
+        // <Operacion= OP>: tras el '=' el lexema pasa a ser la operación
+        int opIgual = nuevo(ERR_FALTA_OP);
+        int opPalabra = nuevo(ERR_FALTA_MAYOR_OP);
+        int opEspacio = nuevo(ERR_FALTA_MAYOR_OP);
+        int opFin = nuevo(TokenType.ABRIROPERACION.ordinal());
+        t(opIgual, ESPACIO, opIgual, CONSUMIR);
+        for (int k : mayusculas()) {
+            t(opIgual, k, opPalabra, GUARDAR);
+            t(opPalabra, k, opPalabra, GUARDAR);
+        }
+        t(opPalabra, ESPACIO, opEspacio, CONSUMIR);
+        t(opEspacio, ESPACIO, opEspacio, CONSUMIR);
+        t(opPalabra, MAYOR, opFin, CONSUMIR);
+        t(opEspacio, MAYOR, opFin, CONSUMIR);
+
+        etiquetas(abre, false, opIgual);
+        etiquetas(cierra, true, opIgual);
+
+        TRANS = Arrays.copyOf(trans, nEstados * NCLASES);
+        AL_PARAR = Arrays.copyOf(alParar, nEstados);
+        trans = null;
+        alParar = null;
+    }
+
+    private TablaDFA() {
+    }
+
+    /** Nombres de etiqueta (letras máximas) tras '<' o '</', espacios opcionales y '>'. */
+    private static void etiquetas(int raiz, boolean cierre, int opIgual) {
+        int errMayor = cierre ? ERR_FALTA_MAYOR_CIERRA : ERR_FALTA_MAYOR_ABRE;
+
+        // Nombre no reconocido: se sigue leyendo igual y se reporta al cerrar con '>'
+        int otro = nuevo(errMayor);
+        int otroEspacio = nuevo(errMayor);
+        int otroFin = nuevo(ERR_NO_RECONOCIDA);
+        for (int k : letras()) t(otro, k, otro, GUARDAR);
+        cierreDeNombre(otro, otroEspacio, otroFin);
+
+        String[] nombres = {"Operacion", "Numero", "P", "R"};
+        TokenType[] abren = {null, TokenType.ABRIRONUMERO, TokenType.ABRIRO_P, TokenType.ABRIRO_R};
+        TokenType[] cierran = {TokenType.CERRAROPERACION, TokenType.CERRARNUMERO, TokenType.CERRAR_P, TokenType.CERRAR_R};
+        for (int n = 0; n < nombres.length; n++) {
+            String nombre = nombres[n];
+            int previo = raiz;
+            for (int i = 0; i < nombre.length(); i++) {
+                int e = nuevo(errMayor);
+                t(previo, CLASE[nombre.charAt(i)], e, GUARDAR);
+                if (previo != raiz) {
+                    rellenarComoOtro(previo, otro, otroEspacio, otroFin); // prefijo incompleto
+                }
+                previo = e;
+            }
+            int completo = previo;
+            for (int k : letras()) {
+                if (trans[completo * NCLASES + k] == -1) t(completo, k, otro, GUARDAR);
+            }
+            if (!cierre && abren[n] == null) {
+                // <Operacion debe seguir con '=' (con espacios antes)
+                alParar[completo] = ERR_SIN_IGUAL;
+                int espacio = nuevo(ERR_SIN_IGUAL);
+                t(completo, ESPACIO, espacio, CONSUMIR);
+                t(espacio, ESPACIO, espacio, CONSUMIR);
+                t(completo, IGUAL, opIgual, REINICIAR);
+                t(espacio, IGUAL, opIgual, REINICIAR);
+            } else {
+                int espacio = nuevo(errMayor);
+                int fin = nuevo((cierre ? cierran[n] : abren[n]).ordinal());
+                cierreDeNombre(completo, espacio, fin);
+            }
+        }
+        // Cualquier otra letra tras '<' / '</' empieza un nombre no reconocido
+        for (int k : letras()) {
+            if (trans[raiz * NCLASES + k] == -1) t(raiz, k, otro, GUARDAR);
+        }
+    }
+
+    private static void rellenarComoOtro(int e, int otro, int otroEspacio, int otroFin) {
+        for (int k : letras()) {
+            if (trans[e * NCLASES + k] == -1) t(e, k, otro, GUARDAR);
+        }
+        t(e, ESPACIO, otroEspacio, CONSUMIR);
+        t(e, MAYOR, otroFin, CONSUMIR);
+    }
+
+    private static void cierreDeNombre(int nombre, int espacio, int fin) {
+        t(nombre, ESPACIO, espacio, CONSUMIR);
+        t(espacio, ESPACIO, espacio, CONSUMIR);
+        t(nombre, MAYOR, fin, CONSUMIR);
+        t(espacio, MAYOR, fin, CONSUMIR);
+    }
+
+    private static int[] letras() {
+        int[] r = new int[2 + LETRAS_CLAVE.length()];
+        r[0] = MAYUS_OTRA;
+        r[1] = MINUS_OTRA;
+        for (int i = 0; i < LETRAS_CLAVE.length(); i++) r[2 + i] = PRIMERA_LETRA + i;
+        return r;
+    }
+
+    private static int[] mayusculas() {
+        int[] r = new int[1 + LETRAS_CLAVE.length()];
+        int n = 0;
+        r[n++] = MAYUS_OTRA;
+        for (int i = 0; i < LETRAS_CLAVE.length(); i++) {
+            if (Character.isUpperCase(LETRAS_CLAVE.charAt(i))) r[n++] = PRIMERA_LETRA + i;
+        }
+        return Arrays.copyOf(r, n);
+    }
+
+    private static int nuevo(int alPararEnEste) {
+        if (nEstados == alParar.length) {
+            alParar = Arrays.copyOf(alParar, nEstados * 2);
+            int viejo = trans.length;
+            trans = Arrays.copyOf(trans, viejo * 2);
+            Arrays.fill(trans, viejo, trans.length, -1);
+        }
+        alParar[nEstados] = alPararEnEste;
+        return nEstados++;
+    }
+
+    private static void t(int de, int clase, int a, int accion) {
+        trans[de * NCLASES + clase] = (accion << 16) | a;
+    }
+}